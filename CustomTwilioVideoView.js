@@ -12,6 +12,13 @@ import React, { PropTypes, Component } from 'react';
 
 const propTypes = {
     ...View.propTypes,
+    /**
+     * Call session this view belongs to. Previews show the video of the call
+     * view with the same sessionId, so several calls or a preview screen can
+     * coexist. Defaults to 'default'.
+     */
+    sessionId: PropTypes.string,
+
     /**
      * Callback that is called when camera source changes
      */
@@ -52,6 +59,147 @@ const propTypes = {
      */
     onRoomParticipantDidDisconnect: PropTypes.func,
 
+    /**
+     * Callback that is called with the time to the first local or remote frame
+     * once video resumes after the app comes back from the background.
+     */
+    onVideoResumed: PropTypes.func,
+
+    /**
+     * Callback that is called when a participant publishes a video track, with
+     * participantSid and trackId to bind a TwilioRemotePreview to it.
+     */
+    onParticipantAddedVideoTrack: PropTypes.func,
+
+    /**
+     * Callback that is called when a participant unpublishes a video track.
+     */
+    onParticipantRemovedVideoTrack: PropTypes.func,
+
+    /**
+     * Maximum number of remote previews on screen that render video, 0 for all.
+     */
+    maxRenderedTracks: PropTypes.number,
+
+    /**
+     * Which previews render first once maxRenderedTracks is reached: the most
+     * recently active participants, pinned ones, or the dominant speaker.
+     */
+    renderPriority: PropTypes.oneOf(['recency', 'pinned', 'dominantSpeaker']),
+
+    /**
+     * Participant SIDs ranked first, in order, by the 'pinned' and
+     * 'dominantSpeaker' priorities.
+     */
+    pinnedParticipants: PropTypes.arrayOf(PropTypes.string),
+
+    /**
+     * SID of the participant currently speaking.
+     */
+    dominantSpeaker: PropTypes.string,
+
+    /**
+     * Callback with renderedTracks and availableTracks whenever the number of
+     * rendered remote tracks changes.
+     */
+    onRenderedTracksChanged: PropTypes.func,
+
+    /**
+     * Callback that is called as a call starts, once per stage. 'warmUp',
+     * 'capturer', 'localTracks', 'bind' and 'signaling', 'connected' run in
+     * parallel and join at 'publish'; 'firstRemoteFrame' comes last. Reports
+     * the stage's duration and the time elapsed since the call started, in ms.
+     */
+    onConnectStage: PropTypes.func,
+
+    /**
+     * How long the camera and microphone tracks stay alive after a call or
+     * local preview ends, in ms, so that a reconnect or the next call reuses
+     * them. They are released sooner when the app is hidden or memory runs
+     * low. The camera stays open meanwhile. Defaults to 0, release right away.
+     */
+    localMediaIdleTimeout: PropTypes.number,
+
+    /**
+     * Capture budget for the local video, as '<height>p<fps>' optionally
+     * followed by an aspect ratio, e.g. '720p30' or '480p15 4:3', or
+     * 'batterySaver' for 480p15. The largest camera format within it is used.
+     * Defaults to the SDK's own constraints.
+     */
+    captureProfile: PropTypes.string,
+
+    /**
+     * Lowers local capture from 720p30 to 540p24 and 360p15 while the device
+     * is saturated (CPU, dropped remote frames, battery temperature), and back
+     * up once it recovers. Stays within captureProfile. Defaults to false.
+     */
+    adaptiveQuality: PropTypes.bool,
+
+    /**
+     * Callback that is called when adaptiveQuality changed the capture, with
+     * the new profile and level, the reason and the sampled cpu, dropRatio
+     * and battery temperature.
+     */
+    onCaptureQualityChanged: PropTypes.func,
+
+    /**
+     * Callback that is called once switchRoom completed, with the new room,
+     * the previous one and the switch duration in ms. onRoomDidConnect is
+     * called for the new room before it; the previous room disconnects
+     * without calling onRoomDidDisconnect.
+     */
+    onRoomSwitched: PropTypes.func,
+
+    /**
+     * Callback that is called when switchRoom could not connect to the new
+     * room, with the reason, the error code, the failedRoom and the room the
+     * call stays in. onConnectFailure is not called for a failed switch.
+     */
+    onRoomSwitchFailed: PropTypes.func,
+
+    /**
+     * Callback that is called when the room dropped because of a network error
+     * and is about to be connected again, with the attempt number, the delay
+     * before it in ms and the error code. Local video and the previews stay
+     * bound meanwhile; onRoomDidDisconnect is only called if reconnecting fails.
+     */
+    onRoomReconnecting: PropTypes.func,
+
+    /**
+     * Callback that is called once the room is connected again, with the
+     * number of attempts and the time since it dropped in ms.
+     */
+    onRoomReconnected: PropTypes.func,
+
+    /**
+     * When more participants than this join or leave within a frame, e.g. in
+     * a large room, onParticipantsChanged is called once with the connected
+     * and disconnected participants instead of onRoomParticipantDidConnect
+     * and onRoomParticipantDidDisconnect for each. A participant joining and
+     * leaving within the frame is not reported. Defaults to 0, never batch.
+     */
+    participantsChangedThreshold: PropTypes.number,
+
+    /**
+     * Callback with the connected and disconnected participants, see
+     * participantsChangedThreshold.
+     */
+    onParticipantsChanged: PropTypes.func,
+
+    /**
+     * How often the room's stats are polled while connected, in ms. Defaults
+     * to 0, no polling.
+     */
+    statsInterval: PropTypes.number,
+
+    /**
+     * Callback with each stats sample: sendBitrate and receiveBitrate in
+     * kbps, sendPacketLoss and receivePacketLoss from 0 to 1, roundTripTime
+     * and jitter in ms, sentFrameRate and receivedFrameRate, and their
+     * average over the last 60 samples. See statsInterval.
+     */
+    onStats: PropTypes.func,
+
 };
 
 const nativeEvents = {
@@ -60,6 +208,9 @@ const nativeEvents = {
     switchCamera: 3,
     toggleVideo: 4,
     toggleSound: 5,
+    startLocalPreview: 6,
+    stopLocalPreview: 7,
+    switchRoom: 8,
 };
 
 class CustomTwilioVideoView extends Component {
@@ -84,6 +235,18 @@ class CustomTwilioVideoView extends Component {
         this.runCommand(nativeEvents.toggleSound, []);
     }
 
+    startLocalPreview() {
+        this.runCommand(nativeEvents.startLocalPreview, []);
+    }
+
+    stopLocalPreview() {
+        this.runCommand(nativeEvents.stopLocalPreview, []);
+    }
+
+    switchRoom(accessToken) {
+        this.runCommand(nativeEvents.switchRoom, [accessToken]);
+    }
+
     runCommand(event, args) {
         switch (Platform.OS) {
             case 'android':
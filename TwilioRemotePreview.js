@@ -2,10 +2,53 @@ import {
   requireNativeComponent,
   View,
 } from 'react-native';
-import React from 'react';
+import React, { PropTypes } from 'react';
 
 const propTypes = {
   ...View.propTypes,
+  /**
+   * sessionId of the CustomTwilioVideoView whose remote video this preview shows,
+   * defaults to 'default'.
+   */
+  sessionId: PropTypes.string,
+  /**
+   * SID of the participant to show. Without it the preview shows the first
+   * participant that publishes video.
+   */
+  participantSid: PropTypes.string,
+  /**
+   * Id of the participant's video track to show, defaults to its first one.
+   */
+  trackId: PropTypes.string,
+  /**
+   * Maximum number of frames rendered per second, 0 for no cap.
+   */
+  maxFps: PropTypes.number,
+  /**
+   * How the video fits the view: 'fit', 'fill' or 'balanced'.
+   */
+  scaleType: PropTypes.oneOf(['fit', 'fill', 'balanced']),
+  /**
+   * Mirror the video horizontally.
+   */
+  mirror: PropTypes.bool,
+  /**
+   * Fraction of the view resolution to render at, between 0.1 and 1.
+   */
+  renderResolutionScale: PropTypes.number,
+  /**
+   * 'immediate' draws frames as they arrive, 'vsync' at most once per display refresh.
+   */
+  presentationMode: PropTypes.oneOf(['immediate', 'vsync']),
+  /**
+   * Milliseconds between onRendererStats events, 0 disables them.
+   */
+  rendererStatsInterval: PropTypes.number,
+  /**
+   * Callback with renderer health: fps, dropRatio, renderTimeP50/P95/P99 (ms),
+   * timeSinceFirstFrame (ms) and the raw frame counters.
+   */
+  onRendererStats: PropTypes.func,
 };
 
 class TwilioRemotePreview extends React.Component {
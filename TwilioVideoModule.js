@@ -0,0 +1,198 @@
+// @flow
+import {
+    NativeModules,
+    DeviceEventEmitter,
+    // $FlowFixMe
+} from 'react-native';
+
+const { TwilioVideoModule } = NativeModules;
+
+/*
+ * Applies RoomStateStore changes to a snapshot, returning a new state object.
+ */
+function applyChanges(state, changes) {
+    let room = state.room;
+    let participants = { ...state.participants };
+    changes.forEach((change) => {
+        const participant = participants[change.participantSid];
+        switch (change.op) {
+            case 'roomConnected':
+                room = { name: change.roomName, sid: change.roomSid };
+                participants = {};
+                break;
+            case 'roomDisconnected':
+                room = null;
+                participants = {};
+                break;
+            case 'participantConnected':
+                participants[change.participantSid] = {
+                    sid: change.participantSid,
+                    identity: change.identity,
+                    tracks: {},
+                };
+                break;
+            case 'participantDisconnected':
+                delete participants[change.participantSid];
+                break;
+            case 'trackAdded':
+            case 'trackEnabled':
+                if (participant) {
+                    participants[change.participantSid] = {
+                        ...participant,
+                        tracks: {
+                            ...participant.tracks,
+                            [change.trackId]: {
+                                trackId: change.trackId,
+                                kind: change.kind,
+                                enabled: change.enabled,
+                            },
+                        },
+                    };
+                }
+                break;
+            case 'trackRemoved':
+                if (participant) {
+                    const tracks = { ...participant.tracks };
+                    delete tracks[change.trackId];
+                    participants[change.participantSid] = { ...participant, tracks };
+                }
+                break;
+            default:
+                break;
+        }
+    });
+    return { version: state.version, room, participants };
+}
+
+/**
+ * Promise based control of the TwilioVideo view whose sessionId prop matches,
+ * 'default' when sessionId is omitted. Unlike the view's methods these do not
+ * wait for the next UI batch, and they resolve once the command ran with
+ * queueMs, the time it waited for the UI thread, and durationMs, the time it
+ * ran. They reject with E_NO_CALL_VIEW when no view has the session.
+ */
+module.exports = {
+
+    /**
+     * Starts connecting. Resolves once the connect started; onRoomDidConnect
+     * or onConnectFailure follow.
+     */
+    connect(accessToken: string, sessionId: ?string) {
+        return TwilioVideoModule.connect(sessionId || null, accessToken);
+    },
+
+    disconnect(sessionId: ?string) {
+        return TwilioVideoModule.disconnect(sessionId || null);
+    },
+
+    /**
+     * Resolves with isBackCamera, or rejects with E_NO_CAMERA.
+     */
+    switchCamera(sessionId: ?string) {
+        return TwilioVideoModule.switchCamera(sessionId || null);
+    },
+
+    /**
+     * Resolves with videoEnabled, or rejects with E_NO_LOCAL_TRACK.
+     */
+    setVideoEnabled(enabled: boolean, sessionId: ?string) {
+        return TwilioVideoModule.setVideoEnabled(sessionId || null, enabled);
+    },
+
+    /**
+     * Resolves with audioEnabled, or rejects with E_NO_LOCAL_TRACK.
+     */
+    setAudioEnabled(enabled: boolean, sessionId: ?string) {
+        return TwilioVideoModule.setAudioEnabled(sessionId || null, enabled);
+    },
+
+    /**
+     * Resolves with reports, one per peer connection, each with the
+     * localAudioTracks, localVideoTracks, remoteAudioTracks and
+     * remoteVideoTracks stats. Rejects with E_NOT_CONNECTED outside a call,
+     * or when the SDK did not answer within 5 s, E_TIMEOUT if still connected.
+     */
+    getStats(sessionId: ?string) {
+        return TwilioVideoModule.getStats(sessionId || null);
+    },
+
+    /**
+     * Resolves with samples, the last 60 onStats samples oldest first. Empty
+     * unless the view has a statsInterval.
+     */
+    getStatsHistory(sessionId: ?string) {
+        return TwilioVideoModule.getStatsHistory(sessionId || null);
+    },
+
+    /**
+     * The session's room state: version, room ({name, sid} or null) and
+     * participants keyed by sid, each with its tracks keyed by trackId
+     * ({trackId, kind, enabled}). Null without such a session.
+     *
+     * This and the next two reads are synchronous and cheap, they read a
+     * copy the native side keeps up to date. Synchronous methods are not
+     * available while debugging JS remotely.
+     */
+    getRoomState(sessionId: ?string) {
+        return TwilioVideoModule.getRoomState(sessionId || null);
+    },
+
+    /**
+     * A participant ({sid, identity, tracks}) of the session's room, null
+     * when it is not in the room.
+     */
+    getParticipant(participantSid: string, sessionId: ?string) {
+        return TwilioVideoModule.getParticipant(sessionId || null, participantSid);
+    },
+
+    /**
+     * The local tracks: audio and video ({trackId, enabled} or null) and
+     * isBackCamera. Video is null while the app is in the background.
+     */
+    getLocalTrackState(sessionId: ?string) {
+        return TwilioVideoModule.getLocalTrackState(sessionId || null);
+    },
+
+    /**
+     * Resolves with the changes following fromVersion, or rejects with
+     * E_VERSION_GONE when they are no longer kept.
+     */
+    getRoomStateChanges(fromVersion: number, sessionId: ?string) {
+        return TwilioVideoModule.getRoomStateChanges(sessionId || null, fromVersion);
+    },
+
+    /**
+     * Calls back with the session's room state now and after every change,
+     * along with the changes applied (null after a resync). Returns a
+     * function that unsubscribes.
+     */
+    subscribeRoomState(callback: Function, sessionId: ?string) {
+        const session = sessionId || 'default';
+        let state = null;
+
+        const resync = () => {
+            const snapshot = TwilioVideoModule.getRoomState(session);
+            if (snapshot && (!state || snapshot.version > state.version)) {
+                state = snapshot;
+                callback(state, null);
+            }
+        };
+
+        const subscription = DeviceEventEmitter.addListener(
+            TwilioVideoModule.ROOM_STATE_CHANGED,
+            (event) => {
+                if (event.sessionId !== session || (state && event.version <= state.version)) {
+                    return;
+                }
+                if (!state || !event.changes || event.fromVersion !== state.version) {
+                    resync();
+                    return;
+                }
+                state = { ...applyChanges(state, event.changes), version: event.version };
+                callback(state, event.changes);
+            }
+        );
+        resync();
+        return () => subscription.remove();
+    },
+};
@@ -0,0 +1,25 @@
+package com.twilio.video;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.view.ViewGroup;
+
+/**
+ * Hosts a full screen {@link RNVideoView} for the renderer benchmarks.
+ */
+public class RNRendererBenchmarkActivity extends Activity {
+
+    private RNVideoView videoView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        this.videoView = new RNVideoView(this);
+        this.setContentView(this.videoView, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                                                                       ViewGroup.LayoutParams.MATCH_PARENT));
+    }
+
+    public RNVideoView getVideoView() {
+        return this.videoView;
+    }
+}
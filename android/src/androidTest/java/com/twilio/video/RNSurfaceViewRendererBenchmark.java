@@ -0,0 +1,138 @@
+package com.twilio.video;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.rule.ActivityTestRule;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.webrtc.SyntheticI420Frames;
+
+import static org.junit.Assert.*;
+
+/**
+ * Drives {@link RNSurfaceViewRenderer#renderFrame} with synthetic I420 frames the way a decoder
+ * thread would, and reports throughput, drop rate, allocations per frame and the frames offered
+ * while the renderer was drawing.
+ *
+ * Needs no network or camera, so it runs on an emulator with software GLES:
+ * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=com.twilio.video.RNSurfaceViewRendererBenchmark
+ *
+ * Results are logged under the RNRendererBenchmark tag and reported as instrumentation status.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RNSurfaceViewRendererBenchmark {
+
+    private static final String TAG = "RNRendererBenchmark";
+
+    private static final long SURFACE_TIMEOUT_MS = 5000L;
+    private static final long DURATION_MS        = 3000L;
+    private static final long FRAME_INTERVAL_NS  = 1000000000L / 30;
+
+    @Rule
+    public ActivityTestRule<RNRendererBenchmarkActivity> activityRule =
+            new ActivityTestRule<>(RNRendererBenchmarkActivity.class);
+
+    private RNVideoView videoView;
+    private int         allocations;
+
+    @Before
+    public void setUp() throws Exception {
+        this.videoView = this.activityRule.getActivity().getVideoView();
+        long deadline = SystemClock.elapsedRealtime() + SURFACE_TIMEOUT_MS;
+        while (!this.videoView.getHolder().getSurface().isValid()) {
+            assertTrue("Surface not created", SystemClock.elapsedRealtime() < deadline);
+            SystemClock.sleep(10L);
+        }
+    }
+
+    @Test
+    public void render360p() throws Exception {
+        this.benchmark("360p", 640, 360);
+    }
+
+    @Test
+    public void render720p() throws Exception {
+        this.benchmark("720p", 1280, 720);
+    }
+
+    @Test
+    public void render1080p() throws Exception {
+        this.benchmark("1080p", 1920, 1080);
+    }
+
+    private void benchmark(String name, int width, int height) {
+        SyntheticI420Frames frames = new SyntheticI420Frames(width, height);
+
+        // Warm up: first frame events, texture allocation and shader compilation.
+        this.feed(frames, 0L, 1000L);
+
+        // As fast as the producer can go: how many frames the render thread keeps up with.
+        RNRendererStatistics.Snapshot flood = this.feed(frames, 0L, DURATION_MS);
+        this.report(name + " flood", flood);
+
+        // At a camera rate: frames lost by a renderer that should keep up.
+        RNRendererStatistics.Snapshot paced = this.feed(frames, FRAME_INTERVAL_NS, DURATION_MS);
+        this.report(name + " 30fps", paced);
+
+        assertTrue(flood.framesRendered > 0);
+    }
+
+    /*
+     * Offers frames for durationMs, pausing intervalNs between them, and returns the renderer
+     * statistics of the run. The number of objects allocated by all threads meanwhile is left in
+     * allocations.
+     */
+    private RNRendererStatistics.Snapshot feed(SyntheticI420Frames frames, long intervalNs, long durationMs) {
+        this.videoView.resetStatistics();
+        this.videoView.getStatistics(new RNRendererStatistics.Snapshot());
+
+        Debug.resetGlobalAllocCount();
+        Debug.startAllocCounting();
+        long startNs = System.nanoTime();
+        long endNs = startNs + durationMs * 1000000L;
+        long nextFrameNs = startNs;
+        while (System.nanoTime() < endNs) {
+            if (intervalNs > 0L) {
+                long waitNs = nextFrameNs - System.nanoTime();
+                if (waitNs > 0L) {
+                    SystemClock.sleep(waitNs / 1000000L);
+                }
+                nextFrameNs += intervalNs;
+            }
+            this.videoView.renderFrame(frames.next(0));
+        }
+        // Let the render thread drain the last frame.
+        SystemClock.sleep(100L);
+        Debug.stopAllocCounting();
+
+        RNRendererStatistics.Snapshot snapshot = new RNRendererStatistics.Snapshot();
+        this.videoView.getStatistics(snapshot);
+        this.allocations = Debug.getGlobalAllocCount();
+        return snapshot;
+    }
+
+    private void report(String name, RNRendererStatistics.Snapshot snapshot) {
+        // One allocation per frame is the synthetic frame itself.
+        double allocationsPerFrame = snapshot.framesReceived > 0
+                ? (double) this.allocations / snapshot.framesReceived - 1.0D
+                : 0.0D;
+        String line = String.format("%s: %.1f fps rendered, %d received, %.1f%% dropped, "
+                                            + "render p50/p95/p99 %.2f/%.2f/%.2f ms, "
+                                            + "%.2f allocations/frame, %d offered while drawing",
+                                    name, snapshot.fps, snapshot.framesReceived, 100.0D * snapshot.dropRatio,
+                                    snapshot.renderTimeP50Ms, snapshot.renderTimeP95Ms, snapshot.renderTimeP99Ms,
+                                    allocationsPerFrame, snapshot.framesOfferedWhileDrawing);
+        Log.i(TAG, line);
+
+        Bundle status = new Bundle();
+        status.putString(name, line);
+        InstrumentationRegistry.getInstrumentation().sendStatus(0, status);
+    }
+}
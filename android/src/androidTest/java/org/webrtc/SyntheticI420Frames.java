@@ -0,0 +1,52 @@
+package org.webrtc;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of I420 frames backed by Java buffers instead of a decoder, for benchmarking renderers.
+ * The frames carry no native frame, so releasing them with
+ * {@link VideoRenderer#renderFrameDone(VideoRenderer.I420Frame)} is free.
+ */
+public class SyntheticI420Frames {
+
+    private final int          width;
+    private final int          height;
+    private final int[]        yuvStrides;
+    private final ByteBuffer[] yuvPlanes;
+
+    public SyntheticI420Frames(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        this.yuvStrides = new int[] {width, chromaWidth, chromaWidth};
+        this.yuvPlanes = new ByteBuffer[] {
+            gradient(width, height),
+            gradient(chromaWidth, chromaHeight),
+            gradient(chromaWidth, chromaHeight)
+        };
+    }
+
+    /**
+     * Returns a new frame sharing the planes of all others. Frames are single use: releasing one
+     * clears its plane references.
+     */
+    public VideoRenderer.I420Frame next(int rotationDegree) {
+        for (ByteBuffer plane : this.yuvPlanes) {
+            plane.rewind();
+        }
+        return new VideoRenderer.I420Frame(this.width, this.height, rotationDegree, this.yuvStrides,
+                                           this.yuvPlanes, 0L);
+    }
+
+    private static ByteBuffer gradient(int width, int height) {
+        ByteBuffer plane = ByteBuffer.allocateDirect(width * height);
+        for (int y = 0; y < height; ++y) {
+            for (int x = 0; x < width; ++x) {
+                plane.put((byte) ((x + y) & 0xFF));
+            }
+        }
+        plane.rewind();
+        return plane;
+    }
+}
@@ -0,0 +1,70 @@
+package com.twilio.video;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * Renderer that measures how long it takes for the first frame to arrive after being added to a
+ * track. It releases every frame untouched and detaches itself after the first one.
+ */
+public class RNFirstFrameProbe implements VideoRenderer {
+
+    public interface Listener {
+        /**
+         * Called on the UI thread once the probe received its first frame.
+         */
+        void onFirstFrame(long timeToFirstFrameMs);
+    }
+
+    private final Handler    uiThreadHandler = new Handler(Looper.getMainLooper());
+    private final VideoTrack videoTrack;
+    private final Listener   listener;
+    private final long       startTimeMs;
+    private volatile boolean done;
+
+    /**
+     * Starts measuring and attaches to the track. Must be called on the UI thread.
+     */
+    public static RNFirstFrameProbe attach(VideoTrack videoTrack, Listener listener) {
+        RNFirstFrameProbe probe = new RNFirstFrameProbe(videoTrack, listener);
+        videoTrack.addRenderer(probe);
+        return probe;
+    }
+
+    private RNFirstFrameProbe(VideoTrack videoTrack, Listener listener) {
+        this.videoTrack = videoTrack;
+        this.listener = listener;
+        this.startTimeMs = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Stops measuring without reporting. Must be called on the UI thread.
+     */
+    public void cancel() {
+        if (this.done) {
+            // Already reported, or about to detach itself.
+            return;
+        }
+        this.done = true;
+        this.videoTrack.removeRenderer(this);
+    }
+
+    @Override
+    public void renderFrame(I420Frame frame) {
+        org.webrtc.VideoRenderer.renderFrameDone(frame.webRtcI420Frame);
+        if (this.done) {
+            return;
+        }
+        this.done = true;
+        final long timeToFirstFrameMs = SystemClock.elapsedRealtime() - this.startTimeMs;
+        // Renderers can not be removed from the thread delivering frames.
+        this.uiThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                RNFirstFrameProbe.this.videoTrack.removeRenderer(RNFirstFrameProbe.this);
+                RNFirstFrameProbe.this.listener.onFirstFrame(timeToFirstFrameMs);
+            }
+        });
+    }
+}
@@ -0,0 +1,87 @@
+package com.twilio.video;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single slot, lock-free hand-off between the thread delivering frames (the WebRTC decoder or
+ * capturer thread) and the thread rendering them.
+ *
+ * A newly offered frame always replaces the pending one; the superseded frame is handed back to
+ * the {@link Recycler} exactly once. The producer never takes a monitor, so it can not be blocked
+ * by the render thread or by layout passes on the UI thread.
+ */
+public class RNFrameMailbox<T> {
+
+    public interface Recycler<T> {
+        void recycle(T frame);
+    }
+
+    private final AtomicReference<T> pendingFrame              = new AtomicReference<>();
+    private final AtomicInteger      framesOfferedWhileDrawing = new AtomicInteger();
+    private final Recycler<T>        recycler;
+    private volatile boolean         consumerBusy;
+
+    public RNFrameMailbox(Recycler<T> recycler) {
+        this.recycler = recycler;
+    }
+
+    /**
+     * Publishes a frame. Returns true if the slot was empty, meaning the consumer has to be woken
+     * up; false if a pending frame was superseded (and recycled) and a wake-up is already queued.
+     */
+    public boolean offer(T frame) {
+        if (this.consumerBusy) {
+            this.framesOfferedWhileDrawing.incrementAndGet();
+        }
+        T superseded = this.pendingFrame.getAndSet(frame);
+        if (superseded != null) {
+            this.recycler.recycle(superseded);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes the pending frame, if any. The caller owns the returned frame and has to release it.
+     */
+    public T poll() {
+        return this.pendingFrame.getAndSet(null);
+    }
+
+    /**
+     * Recycles the pending frame, if any. Returns true if a frame was dropped.
+     */
+    public boolean clear() {
+        T frame = this.pendingFrame.getAndSet(null);
+        if (frame != null) {
+            this.recycler.recycle(frame);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean hasPendingFrame() {
+        return this.pendingFrame.get() != null;
+    }
+
+    /**
+     * Marks the consumer as busy drawing, for {@link #getFramesOfferedWhileDrawing()}.
+     */
+    public void setConsumerBusy(boolean busy) {
+        this.consumerBusy = busy;
+    }
+
+    /**
+     * Frames offered while the consumer was drawing. The offer does not wait then, it only swaps
+     * the slot; a hand-off under the renderer's lock would have waited for the draw each time.
+     * This counts the occasions, not time anyone spent blocked.
+     */
+    public int getFramesOfferedWhileDrawing() {
+        return this.framesOfferedWhileDrawing.get();
+    }
+
+    public void resetFramesOfferedWhileDrawing() {
+        this.framesOfferedWhileDrawing.set(0);
+    }
+}
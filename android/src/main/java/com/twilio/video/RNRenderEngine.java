@@ -0,0 +1,376 @@
+package com.twilio.video;
+
+import android.opengl.GLES20;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.SurfaceHolder;
+
+import org.webrtc.EglBase;
+import org.webrtc.Logging;
+import org.webrtc.ThreadUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.microedition.khronos.egl.EGL10;
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.egl.EGLContext;
+import javax.microedition.khronos.egl.EGLDisplay;
+import javax.microedition.khronos.egl.EGLSurface;
+
+/**
+ * Renders every {@link RNSurfaceViewRenderer} from one render thread and one EGL context, which
+ * is shared with the {@link EglBaseProvider} root context so texture frames can be sampled.
+ *
+ * Each view only owns a window surface. Frames arriving for any view schedule a single render
+ * pass that draws every view with a pending frame, so the number of threads and contexts stays
+ * the same however many participants are on screen.
+ *
+ * Views presenting on vsync are skipped by those passes and drawn from a {@link Choreographer}
+ * callback instead, at most once per display refresh.
+ */
+public class RNRenderEngine {
+    private static final String TAG = "RNRenderEngine";
+
+    private static final int EGL_OPENGL_ES2_BIT = 4;
+
+    /*
+     * The engine context has to be able to draw to the views' window surfaces and to the dummy
+     * pbuffer surface it keeps current while no view is being drawn.
+     */
+    private static final int[] CONFIG_WINDOW_AND_PBUFFER = {
+        EGL10.EGL_RED_SIZE, 8,
+        EGL10.EGL_GREEN_SIZE, 8,
+        EGL10.EGL_BLUE_SIZE, 8,
+        EGL10.EGL_RENDERABLE_TYPE, EGL_OPENGL_ES2_BIT,
+        EGL10.EGL_SURFACE_TYPE, EGL10.EGL_WINDOW_BIT | EGL10.EGL_PBUFFER_BIT,
+        EGL10.EGL_NONE
+    };
+
+    private static final int[] WINDOW_SURFACE_ATTRIBUTES = {EGL10.EGL_NONE};
+
+    private static final long DEFAULT_VSYNC_PERIOD_NS = 1000000000L / 60;
+    // Refresh rates above 250 Hz are not real ones.
+    private static final long MIN_VSYNC_PERIOD_NS     = 4000000L;
+    /*
+     * How often the display's refresh rate is read again, it changes at runtime (e.g. 90 to 60 Hz
+     * in power saving) and reading it may cost a binder call.
+     */
+    private static final long REFRESH_RATE_CHECK_NS   = 1000000000L;
+
+    /**
+     * A view drawn by the engine. Called on the render thread during a render pass.
+     */
+    interface Target {
+        void renderPendingFrame(RNRenderEngine engine);
+
+        /**
+         * True if the view is only drawn from vsync passes.
+         */
+        boolean isVsyncAligned();
+    }
+
+    private static final Object      instanceLock = new Object();
+    private static final Set<Object> owners       = new HashSet<>();
+    private static RNRenderEngine    instance;
+
+    private final EglBaseProvider eglBaseProvider;
+    private final HandlerThread   renderThread;
+    private final Handler         renderThreadHandler;
+    private final List<Target>    targets       = new ArrayList<>();
+    private final AtomicBoolean   passScheduled = new AtomicBoolean();
+    private final int[]           queryResult   = new int[1];
+    private final Runnable        renderPassRunnable;
+    private final AtomicBoolean   vsyncScheduled = new AtomicBoolean();
+    private final Choreographer.FrameCallback vsyncCallback;
+    private Choreographer         choreographer;
+    private volatile long         vsyncRequestTimeNs;
+    private volatile Display      display;
+    private long                  refreshRateCheckTimeNs;
+    private long                  vsyncPeriodNs  = DEFAULT_VSYNC_PERIOD_NS;
+    private boolean               inVsyncPass;
+    private boolean               vsyncLate;
+    private int                   vsyncsSkipped;
+    private EglBase               eglBase;
+    private EGL10                 egl;
+    private EGLDisplay            eglDisplay;
+    private EGLContext            eglContext;
+    private EGLConfig             eglConfig;
+    private EGLSurface            currentSurface;
+
+    public static RNRenderEngine instance(Object owner) {
+        synchronized (instanceLock) {
+            if (instance == null) {
+                instance = new RNRenderEngine();
+            }
+            owners.add(owner);
+            return instance;
+        }
+    }
+
+    private RNRenderEngine() {
+        this.eglBaseProvider = EglBaseProvider.instance(this);
+        this.renderThread = new HandlerThread(TAG);
+        this.renderThread.start();
+        this.renderThreadHandler = new Handler(this.renderThread.getLooper());
+        this.renderPassRunnable = new Runnable() {
+            public void run() {
+                RNRenderEngine.this.renderPass();
+            }
+        };
+        this.vsyncCallback = new Choreographer.FrameCallback() {
+            public void doFrame(long frameTimeNanos) {
+                RNRenderEngine.this.vsyncPass(frameTimeNanos);
+            }
+        };
+        final EglBase.Context sharedContext = this.eglBaseProvider.getRootEglBase().getEglBaseContext();
+        ThreadUtils.invokeAtFrontUninterruptibly(this.renderThreadHandler, new Runnable() {
+            public void run() {
+                // Choreographer is per looper, this one delivers vsync callbacks on the render thread.
+                RNRenderEngine.this.choreographer = Choreographer.getInstance();
+                RNRenderEngine.this.createEglContext(sharedContext);
+            }
+        });
+    }
+
+    public void release(Object owner) {
+        synchronized (instanceLock) {
+            owners.remove(owner);
+            if (instance != this || !owners.isEmpty()) {
+                return;
+            }
+            instance = null;
+        }
+
+        Logging.d(TAG, "Releasing render engine");
+        this.renderThreadHandler.post(new Runnable() {
+            public void run() {
+                RNRenderEngine.this.choreographer.removeFrameCallback(RNRenderEngine.this.vsyncCallback);
+                RNRenderEngine.this.targets.clear();
+                RNRenderEngine.this.eglBase.release();
+                RNRenderEngine.this.eglBase = null;
+                RNRenderEngine.this.eglBaseProvider.release(RNRenderEngine.this);
+                RNRenderEngine.this.renderThread.quit();
+            }
+        });
+    }
+
+    Handler getHandler() {
+        return this.renderThreadHandler;
+    }
+
+    boolean isOnRenderThread() {
+        return Thread.currentThread() == this.renderThread;
+    }
+
+    /**
+     * Registers a view to be drawn in every render pass. Blocks until the render thread picked it
+     * up, so a later removal can never overtake the registration.
+     */
+    void addTarget(final Target target) {
+        ThreadUtils.invokeAtFrontUninterruptibly(this.renderThreadHandler, new Runnable() {
+            public void run() {
+                if (!RNRenderEngine.this.targets.contains(target)) {
+                    RNRenderEngine.this.targets.add(target);
+                }
+            }
+        });
+    }
+
+    void removeTarget(Target target) {
+        this.checkIsOnRenderThread();
+        this.targets.remove(target);
+    }
+
+    /**
+     * Schedules a render pass unless one is already queued. Safe to call from any thread.
+     */
+    void requestRender() {
+        if (this.passScheduled.compareAndSet(false, true)) {
+            this.renderThreadHandler.post(this.renderPassRunnable);
+        }
+    }
+
+    /**
+     * Schedules a vsync pass on the next display refresh unless one is already pending. Safe to
+     * call from any thread.
+     */
+    void requestVsyncRender() {
+        if (this.vsyncScheduled.compareAndSet(false, true)) {
+            this.vsyncRequestTimeNs = System.nanoTime();
+            this.choreographer.postFrameCallback(this.vsyncCallback);
+        }
+    }
+
+    /**
+     * The display the views are shown on, whose refresh rate sets the vsync period. The last
+     * one set wins. Safe to call from any thread.
+     */
+    void setDisplay(Display display) {
+        if (this.display != display) {
+            this.display = display;
+            this.refreshRateCheckTimeNs = 0;
+        }
+    }
+
+    /**
+     * True while drawing from a vsync callback whose processing started after the following vsync
+     * had already passed.
+     */
+    boolean isVsyncLate() {
+        return this.inVsyncPass && this.vsyncLate;
+    }
+
+    /**
+     * Number of vsyncs that went by between requesting the current vsync pass and its callback,
+     * or 0 outside of a vsync pass.
+     */
+    int getVsyncsSkipped() {
+        return this.inVsyncPass ? this.vsyncsSkipped : 0;
+    }
+
+    // ===== EGL ===================================================================================
+
+    EGLSurface createWindowSurface(SurfaceHolder holder) {
+        this.checkIsOnRenderThread();
+        EGLSurface surface = this.egl.eglCreateWindowSurface(this.eglDisplay, this.eglConfig, holder, WINDOW_SURFACE_ATTRIBUTES);
+        if (surface == null || surface == EGL10.EGL_NO_SURFACE) {
+            throw new RuntimeException("Failed to create window surface: 0x" + Integer.toHexString(this.egl.eglGetError()));
+        }
+        return surface;
+    }
+
+    boolean makeCurrent(EGLSurface surface) {
+        this.checkIsOnRenderThread();
+        if (surface == this.currentSurface) {
+            return true;
+        }
+        if (!this.egl.eglMakeCurrent(this.eglDisplay, surface, surface, this.eglContext)) {
+            Logging.e(TAG, "Failed to make surface current: 0x" + Integer.toHexString(this.egl.eglGetError()));
+            return false;
+        }
+        this.currentSurface = surface;
+        return true;
+    }
+
+    void swapBuffers(EGLSurface surface) {
+        this.checkIsOnRenderThread();
+        this.egl.eglSwapBuffers(this.eglDisplay, surface);
+    }
+
+    int surfaceWidth(EGLSurface surface) {
+        this.egl.eglQuerySurface(this.eglDisplay, surface, EGL10.EGL_WIDTH, this.queryResult);
+        return this.queryResult[0];
+    }
+
+    int surfaceHeight(EGLSurface surface) {
+        this.egl.eglQuerySurface(this.eglDisplay, surface, EGL10.EGL_HEIGHT, this.queryResult);
+        return this.queryResult[0];
+    }
+
+    void releaseSurface(EGLSurface surface) {
+        this.checkIsOnRenderThread();
+        if (surface == this.currentSurface) {
+            // Fall back to the pbuffer so the context stays current for other views.
+            this.eglBase.makeCurrent();
+            this.currentSurface = null;
+        }
+        this.egl.eglDestroySurface(this.eglDisplay, surface);
+    }
+
+    private void createEglContext(EglBase.Context sharedContext) {
+        this.eglBase = EglBase.create(sharedContext, CONFIG_WINDOW_AND_PBUFFER);
+        this.eglBase.createDummyPbufferSurface();
+        this.eglBase.makeCurrent();
+
+        /*
+         * EglBase only supports a single surface, so the window surfaces are managed directly
+         * against the context it created.
+         */
+        this.egl = (EGL10) EGLContext.getEGL();
+        this.eglDisplay = this.egl.eglGetCurrentDisplay();
+        this.eglContext = this.egl.eglGetCurrentContext();
+        this.egl.eglQueryContext(this.eglDisplay, this.eglContext, EGL10.EGL_CONFIG_ID, this.queryResult);
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] numConfigs = new int[1];
+        int[] configAttributes = {EGL10.EGL_CONFIG_ID, this.queryResult[0], EGL10.EGL_NONE};
+        if (!this.egl.eglChooseConfig(this.eglDisplay, configAttributes, configs, 1, numConfigs) || numConfigs[0] == 0) {
+            throw new RuntimeException("Unable to find the engine EGL config: 0x" + Integer.toHexString(this.egl.eglGetError()));
+        }
+        this.eglConfig = configs[0];
+        this.currentSurface = null;
+        GLES20.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 1);
+    }
+
+    // ===== RENDERING =============================================================================
+
+    private void renderPass() {
+        this.passScheduled.set(false);
+        if (this.eglBase == null) {
+            return;
+        }
+        // Indexed loop, targets are only touched on this thread and no iterator gets allocated.
+        for (int i = 0; i < this.targets.size(); ++i) {
+            Target target = this.targets.get(i);
+            if (!target.isVsyncAligned()) {
+                target.renderPendingFrame(this);
+            }
+        }
+    }
+
+    private void vsyncPass(long frameTimeNanos) {
+        this.vsyncScheduled.set(false);
+        long nowNs = System.nanoTime();
+        if (frameTimeNanos - this.refreshRateCheckTimeNs >= REFRESH_RATE_CHECK_NS) {
+            this.refreshRateCheckTimeNs = frameTimeNanos;
+            this.updateVsyncPeriod();
+        }
+
+        // The callback should carry the first vsync after the request, anything later was skipped.
+        long waitedNs = frameTimeNanos - this.vsyncRequestTimeNs;
+        this.vsyncsSkipped = waitedNs > 0 ? (int) (waitedNs / this.vsyncPeriodNs) : 0;
+        this.vsyncLate = nowNs - frameTimeNanos > this.vsyncPeriodNs;
+        if (this.eglBase == null) {
+            return;
+        }
+
+        this.inVsyncPass = true;
+        try {
+            // The other views were drawn when their frames arrived.
+            for (int i = 0; i < this.targets.size(); ++i) {
+                Target target = this.targets.get(i);
+                if (target.isVsyncAligned()) {
+                    target.renderPendingFrame(this);
+                }
+            }
+        } finally {
+            this.inVsyncPass = false;
+        }
+    }
+
+    /*
+     * Follows the display's refresh rate both ways. Vsync passes are only requested when a frame
+     * arrives, so the time between two of them says little about the refresh period.
+     */
+    private void updateVsyncPeriod() {
+        Display display = this.display;
+        if (display == null) {
+            return;
+        }
+        float refreshRate = display.getRefreshRate();
+        if (refreshRate > 0f) {
+            this.vsyncPeriodNs = Math.max(MIN_VSYNC_PERIOD_NS, (long) (1000000000L / refreshRate));
+        }
+    }
+
+    private void checkIsOnRenderThread() {
+        if (!this.isOnRenderThread()) {
+            throw new IllegalStateException(TAG + ": Wrong thread.");
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.twilio.video;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Frame statistics of a single renderer.
+ *
+ * The counters and the render time histogram are updated lock-free and without allocating from
+ * the decoder and render threads. {@link #snapshot(Snapshot)} is meant to be called periodically
+ * from another thread: it fills a caller owned {@link Snapshot} with the totals and with rates
+ * and render time percentiles for the interval since the previous snapshot.
+ */
+public class RNRendererStatistics {
+
+    /*
+     * Upper bounds of the render time histogram buckets, in microseconds. The last bucket takes
+     * everything above the last bound.
+     */
+    private static final long[] BUCKET_UPPER_BOUNDS_US = {
+        100, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 4000, 5000, 6000, 8000, 10000, 12500,
+        16667, 20000, 25000, 33333, 50000, 100000
+    };
+    private static final int BUCKET_COUNT = BUCKET_UPPER_BOUNDS_US.length + 1;
+
+    /**
+     * Point in time view of the statistics. Rates and percentiles cover the interval since the
+     * previous snapshot.
+     */
+    public static class Snapshot {
+        public int    framesReceived;
+        public int    framesDropped;
+        public int    framesThrottled;
+        public int    framesRendered;
+        public int    vsyncsLate;
+        public int    vsyncsSkipped;
+        public int    framesOfferedWhileDrawing;
+        public double fps;
+        public double dropRatio;
+        public double renderTimeP50Ms;
+        public double renderTimeP95Ms;
+        public double renderTimeP99Ms;
+        public long   timeSinceFirstFrameMs;
+    }
+
+    final AtomicInteger framesReceived  = new AtomicInteger();
+    final AtomicInteger framesDropped   = new AtomicInteger();
+    final AtomicInteger framesThrottled = new AtomicInteger();
+    final AtomicInteger framesRendered  = new AtomicInteger();
+    final AtomicInteger vsyncsLate      = new AtomicInteger();
+    final AtomicInteger vsyncsSkipped   = new AtomicInteger();
+    final AtomicLong    renderTimeNs    = new AtomicLong();
+    volatile long       firstFrameTimeNs;
+
+    private final AtomicIntegerArray renderTimeHistogram = new AtomicIntegerArray(BUCKET_COUNT);
+
+    // Interval bookkeeping, guarded by this.
+    private final int[] previousHistogram = new int[BUCKET_COUNT];
+    private final int[] intervalHistogram = new int[BUCKET_COUNT];
+    private int         previousReceived;
+    private int         previousDropped;
+    private int         previousRendered;
+    private long        previousSnapshotTimeNs;
+
+    /**
+     * Records a rendered frame. Returns the number of frames rendered so far, including this one.
+     */
+    int recordFrameRendered(long startTimeNs, long renderTimeNs) {
+        if (this.framesRendered.get() == 0) {
+            this.firstFrameTimeNs = startTimeNs;
+        }
+        this.renderTimeNs.addAndGet(renderTimeNs);
+        this.renderTimeHistogram.incrementAndGet(bucketOf(renderTimeNs / 1000));
+        return this.framesRendered.incrementAndGet();
+    }
+
+    public synchronized void reset() {
+        this.framesReceived.set(0);
+        this.framesDropped.set(0);
+        this.framesThrottled.set(0);
+        this.framesRendered.set(0);
+        this.vsyncsLate.set(0);
+        this.vsyncsSkipped.set(0);
+        this.renderTimeNs.set(0L);
+        this.firstFrameTimeNs = 0L;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            this.renderTimeHistogram.set(i, 0);
+            this.previousHistogram[i] = 0;
+        }
+        this.previousReceived = 0;
+        this.previousDropped = 0;
+        this.previousRendered = 0;
+        this.previousSnapshotTimeNs = 0L;
+    }
+
+    /**
+     * Totals since the last reset, without starting a new snapshot interval.
+     */
+    public int getFramesReceived() {
+        return this.framesReceived.get();
+    }
+
+    public int getFramesDropped() {
+        return this.framesDropped.get();
+    }
+
+    public synchronized void snapshot(Snapshot out) {
+        long nowNs = System.nanoTime();
+        out.framesReceived = this.framesReceived.get();
+        out.framesDropped = this.framesDropped.get();
+        out.framesThrottled = this.framesThrottled.get();
+        out.framesRendered = this.framesRendered.get();
+        out.vsyncsLate = this.vsyncsLate.get();
+        out.vsyncsSkipped = this.vsyncsSkipped.get();
+        long firstFrameTimeNs = this.firstFrameTimeNs;
+        out.timeSinceFirstFrameMs = firstFrameTimeNs != 0L ? (nowNs - firstFrameTimeNs) / 1000000L : 0L;
+
+        int received = out.framesReceived - this.previousReceived;
+        int dropped = out.framesDropped - this.previousDropped;
+        int rendered = out.framesRendered - this.previousRendered;
+        long elapsedNs = this.previousSnapshotTimeNs != 0L ? nowNs - this.previousSnapshotTimeNs : 0L;
+        out.fps = elapsedNs > 0L ? rendered * 1.0E9D / elapsedNs : 0.0D;
+        out.dropRatio = received > 0 ? (double) dropped / received : 0.0D;
+
+        int total = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            int count = this.renderTimeHistogram.get(i);
+            this.intervalHistogram[i] = count - this.previousHistogram[i];
+            this.previousHistogram[i] = count;
+            total += this.intervalHistogram[i];
+        }
+        out.renderTimeP50Ms = this.percentileMs(0.50D, total);
+        out.renderTimeP95Ms = this.percentileMs(0.95D, total);
+        out.renderTimeP99Ms = this.percentileMs(0.99D, total);
+
+        this.previousReceived = out.framesReceived;
+        this.previousDropped = out.framesDropped;
+        this.previousRendered = out.framesRendered;
+        this.previousSnapshotTimeNs = nowNs;
+    }
+
+    /*
+     * Upper bound of the bucket holding the given percentile of the interval histogram. Samples
+     * in the overflow bucket are reported at the largest bound.
+     */
+    private double percentileMs(double percentile, int total) {
+        if (total <= 0) {
+            return 0.0D;
+        }
+        int rank = (int) Math.ceil(percentile * total);
+        int seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += this.intervalHistogram[i];
+            if (seen >= rank) {
+                int bound = Math.min(i, BUCKET_UPPER_BOUNDS_US.length - 1);
+                return BUCKET_UPPER_BOUNDS_US[bound] / 1000.0D;
+            }
+        }
+        return BUCKET_UPPER_BOUNDS_US[BUCKET_UPPER_BOUNDS_US.length - 1] / 1000.0D;
+    }
+
+    private static int bucketOf(long renderTimeUs) {
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_US.length; ++i) {
+            if (renderTimeUs < BUCKET_UPPER_BOUNDS_US[i]) {
+                return i;
+            }
+        }
+        return BUCKET_UPPER_BOUNDS_US.length;
+    }
+}
@@ -1,19 +1,15 @@
 package com.twilio.video;
 
 import android.content.Context;
-import android.content.res.Resources;
 import android.graphics.Point;
 import android.opengl.GLES20;
 import android.os.Handler;
-import android.os.HandlerThread;
 import android.os.Looper;
 import android.util.AttributeSet;
-import android.util.Log;
+import android.view.Display;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
-import android.view.ViewGroup;
 
-import org.webrtc.EglBase;
 import org.webrtc.GlRectDrawer;
 import org.webrtc.GlUtil;
 import org.webrtc.Logging;
@@ -23,18 +19,33 @@ import org.webrtc.VideoRenderer;
 
 import java.util.concurrent.CountDownLatch;
 
-public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.Callback, VideoRenderer.Callbacks {
+import javax.microedition.khronos.egl.EGLSurface;
+
+/**
+ * SurfaceView rendering I420 frames. The view only owns its window surface; the render thread
+ * and the EGL context are shared with every other view through {@link RNRenderEngine}.
+ */
+public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.Callback, VideoRenderer.Callbacks, RNRenderEngine.Target {
     private static final String TAG = "RNSurfaceViewRenderer";
-    private HandlerThread renderThread;
+
+    /**
+     * IMMEDIATE draws a frame as soon as the render thread gets to it. VSYNC latches the newest
+     * pending frame on the next display refresh and draws at most one frame per vsync.
+     */
+    public enum PresentationMode {
+        IMMEDIATE,
+        VSYNC
+    }
+
     private final Object handlerLock = new Object();
-    private Handler renderThreadHandler;
+    private volatile RNRenderEngine renderEngine;
     private Handler uiThreadHandler;
-    private EglBase eglBase;
+    private EGLSurface eglSurface;
     private final RendererCommon.YuvUploader yuvUploader = new RendererCommon.YuvUploader();
     private RendererCommon.GlDrawer drawer;
     private int[] yuvTextures = null;
-    private final Object frameLock = new Object();
-    private VideoRenderer.I420Frame pendingFrame;
+    private final RNTextureMatrix textureMatrix = new RNTextureMatrix();
+    private final RNFrameMailbox<VideoRenderer.I420Frame> frameMailbox;
     private final Object layoutLock        = new Object();
     private       Point  desiredLayoutSize = new Point();
     private final Point  layoutSize        = new Point();
@@ -46,27 +57,29 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
     private       RendererCommon.ScalingType    scalingType;
     private       boolean                       mirror;
     private       RendererCommon.RendererEvents rendererEvents;
-    private final Object                        statisticsLock;
-    private       int                           framesReceived;
-    private       int                           framesDropped;
-    private       int                           framesRendered;
-    private       long                          firstFrameTimeNs;
-    private       long                          renderTimeNs;
-    private final Runnable                      renderFrameRunnable;
+    private final RNRendererStatistics          statistics     = new RNRendererStatistics();
+    private volatile PresentationMode           presentationMode = PresentationMode.IMMEDIATE;
+    private volatile long                       minFrameIntervalNs;
+    // Only touched by the thread delivering frames.
+    private       long                          nextFrameDueNs;
+    private       float                         renderResolutionScale = 1.0F;
+    private final Point                         fixedSurfaceSize = new Point();
     private final Runnable                      makeBlackRunnable;
 
     protected RNSurfaceViewRenderer(Context context) {
         super(context);
         this.scalingType = RendererCommon.ScalingType.SCALE_ASPECT_FIT;
-        this.statisticsLock = new Object();
-        this.renderFrameRunnable = new Runnable() {
-            public void run() {
-                RNSurfaceViewRenderer.this.renderFrameOnRenderThread();
+        this.frameMailbox = new RNFrameMailbox<>(new RNFrameMailbox.Recycler<VideoRenderer.I420Frame>() {
+            public void recycle(VideoRenderer.I420Frame frame) {
+                VideoRenderer.renderFrameDone(frame);
             }
-        };
+        });
         this.makeBlackRunnable = new Runnable() {
             public void run() {
-                RNSurfaceViewRenderer.this.makeBlack();
+                RNRenderEngine engine = RNSurfaceViewRenderer.this.renderEngine;
+                if(engine != null) {
+                    RNSurfaceViewRenderer.this.makeBlack(engine);
+                }
             }
         };
         this.getHolder().addCallback(this);
@@ -75,58 +88,63 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
     protected RNSurfaceViewRenderer(Context context, AttributeSet attrs) {
         super(context, attrs);
         this.scalingType = RendererCommon.ScalingType.SCALE_ASPECT_FIT;
-        this.statisticsLock = new Object();
-        this.renderFrameRunnable = new Runnable() {
-            public void run() {
-                RNSurfaceViewRenderer.this.renderFrameOnRenderThread();
+        this.frameMailbox = new RNFrameMailbox<>(new RNFrameMailbox.Recycler<VideoRenderer.I420Frame>() {
+            public void recycle(VideoRenderer.I420Frame frame) {
+                VideoRenderer.renderFrameDone(frame);
             }
-        };
+        });
         this.makeBlackRunnable = new Runnable() {
             public void run() {
-                RNSurfaceViewRenderer.this.makeBlack();
+                RNRenderEngine engine = RNSurfaceViewRenderer.this.renderEngine;
+                if(engine != null) {
+                    RNSurfaceViewRenderer.this.makeBlack(engine);
+                }
             }
         };
         this.getHolder().addCallback(this);
     }
 
-    protected void init(org.webrtc.EglBase.Context sharedContext, RendererCommon.RendererEvents rendererEvents) {
-        this.init(sharedContext, rendererEvents, EglBase.CONFIG_PLAIN, new GlRectDrawer());
+    protected void init(RNRenderEngine renderEngine, RendererCommon.RendererEvents rendererEvents) {
+        this.init(renderEngine, rendererEvents, new GlRectDrawer());
     }
 
-    protected void init(final org.webrtc.EglBase.Context sharedContext, RendererCommon.RendererEvents rendererEvents, final int[] configAttributes, RendererCommon.GlDrawer drawer) {
-        Object var5 = this.handlerLock;
+    protected void init(RNRenderEngine renderEngine, RendererCommon.RendererEvents rendererEvents, RendererCommon.GlDrawer drawer) {
         synchronized(this.handlerLock) {
-            if(this.renderThreadHandler != null) {
+            if(this.renderEngine != null) {
                 throw new IllegalStateException(this.getResourceName() + "Already initialized");
             }
 
             Logging.d("SurfaceViewRenderer", this.getResourceName() + "Initializing.");
             this.rendererEvents = rendererEvents;
             this.drawer = drawer;
-            this.renderThread = new HandlerThread("SurfaceViewRenderer");
-            this.renderThread.start();
-            this.renderThreadHandler = new Handler(this.renderThread.getLooper());
             this.uiThreadHandler = new Handler(Looper.getMainLooper());
-            ThreadUtils.invokeAtFrontUninterruptibly(this.renderThreadHandler, new Runnable() {
-                public void run() {
-                    RNSurfaceViewRenderer.this.eglBase = EglBase.create(sharedContext, configAttributes);
-                }
-            });
+            renderEngine.addTarget(this);
+            this.renderEngine = renderEngine;
         }
 
+        this.updateDisplay();
         this.tryCreateEglSurface();
     }
 
+    /*
+     * Hands the view's display to the engine for its refresh rate. Null until attached.
+     */
+    private void updateDisplay() {
+        RNRenderEngine engine = this.renderEngine;
+        Display display = this.getDisplay();
+        if (engine != null && display != null) {
+            engine.setDisplay(display);
+        }
+    }
+
     protected void tryCreateEglSurface() {
         this.runOnRenderThread(new Runnable() {
             public void run() {
+                RNRenderEngine engine = RNSurfaceViewRenderer.this.renderEngine;
                 synchronized(RNSurfaceViewRenderer.this.layoutLock) {
-                    if(RNSurfaceViewRenderer.this.eglBase != null && RNSurfaceViewRenderer.this.isSurfaceCreated && !RNSurfaceViewRenderer.this.eglBase.hasSurface()) {
-                        RNSurfaceViewRenderer.this.eglBase.createSurface(RNSurfaceViewRenderer.this.getHolder().getSurface());
-                        RNSurfaceViewRenderer.this.eglBase.makeCurrent();
-                        GLES20.glPixelStorei(3317, 1);
+                    if(engine != null && RNSurfaceViewRenderer.this.isSurfaceCreated && RNSurfaceViewRenderer.this.eglSurface == null) {
+                        RNSurfaceViewRenderer.this.eglSurface = engine.createWindowSurface(RNSurfaceViewRenderer.this.getHolder());
                     }
-
                 }
             }
         });
@@ -134,15 +152,18 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
 
     protected void release() {
         final CountDownLatch eglCleanupBarrier = new CountDownLatch(1);
-        Object var2 = this.handlerLock;
         synchronized(this.handlerLock) {
-            if(this.renderThreadHandler == null) {
+            if(this.renderEngine == null) {
                 Logging.d("SurfaceViewRenderer", this.getResourceName() + "Already released");
                 return;
             }
 
-            this.renderThreadHandler.postAtFrontOfQueue(new Runnable() {
+            final RNRenderEngine engine = this.renderEngine;
+            this.renderEngine = null;
+            this.uiThreadHandler = null;
+            engine.getHandler().postAtFrontOfQueue(new Runnable() {
                 public void run() {
+                    engine.removeTarget(RNSurfaceViewRenderer.this);
                     RNSurfaceViewRenderer.this.drawer.release();
                     RNSurfaceViewRenderer.this.drawer = null;
                     if(RNSurfaceViewRenderer.this.yuvTextures != null) {
@@ -150,29 +171,17 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
                         RNSurfaceViewRenderer.this.yuvTextures = null;
                     }
 
-                    RNSurfaceViewRenderer.this.makeBlack();
-                    RNSurfaceViewRenderer.this.eglBase.release();
-                    RNSurfaceViewRenderer.this.eglBase = null;
+                    RNSurfaceViewRenderer.this.textureMatrix.invalidate();
+
+                    RNSurfaceViewRenderer.this.makeBlack(engine);
+                    RNSurfaceViewRenderer.this.releaseEglSurface(engine);
                     eglCleanupBarrier.countDown();
                 }
             });
-            this.renderThreadHandler = null;
-            this.uiThreadHandler = null;
         }
 
         ThreadUtils.awaitUninterruptibly(eglCleanupBarrier);
-        this.renderThread.quit();
-        var2 = this.frameLock;
-        synchronized(this.frameLock) {
-            if(this.pendingFrame != null) {
-                VideoRenderer.renderFrameDone(this.pendingFrame);
-                this.pendingFrame = null;
-            }
-        }
-
-        ThreadUtils.joinUninterruptibly(this.renderThread);
-        this.renderThread = null;
-        var2 = this.layoutLock;
+        this.frameMailbox.clear();
         synchronized(this.layoutLock) {
             this.frameWidth = 0;
             this.frameHeight = 0;
@@ -184,14 +193,67 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
     }
 
     protected void resetStatistics() {
-        Object var1 = this.statisticsLock;
-        synchronized(this.statisticsLock) {
-            this.framesReceived = 0;
-            this.framesDropped = 0;
-            this.framesRendered = 0;
-            this.firstFrameTimeNs = 0L;
-            this.renderTimeNs = 0L;
+        this.statistics.reset();
+        this.frameMailbox.resetFramesOfferedWhileDrawing();
+    }
+
+    /**
+     * Fills the snapshot with the current statistics. Meant to be called periodically from a
+     * thread other than the render thread, which never waits for it.
+     */
+    protected void getStatistics(RNRendererStatistics.Snapshot snapshot) {
+        this.statistics.snapshot(snapshot);
+        snapshot.framesOfferedWhileDrawing = this.frameMailbox.getFramesOfferedWhileDrawing();
+    }
+
+    /**
+     * The statistics, for readers that only need totals and must not move the snapshot interval.
+     */
+    public RNRendererStatistics getStatistics() {
+        return this.statistics;
+    }
+
+    /**
+     * Caps the rate frames are drawn at. Frames above the cap are released before they are
+     * uploaded. 0 removes the cap.
+     */
+    protected void setMaxFps(int maxFps) {
+        this.minFrameIntervalNs = maxFps > 0 ? 1000000000L / maxFps : 0L;
+    }
+
+    /**
+     * Renders into a surface smaller than the view, which the compositor scales up. 1 renders at
+     * the view's full resolution.
+     */
+    protected void setRenderResolutionScale(float scale) {
+        if(scale <= 0.0F || scale > 1.0F) {
+            throw new IllegalArgumentException("Render resolution scale must be in (0, 1], was " + scale);
         }
+        this.renderResolutionScale = scale;
+        this.updateSurfaceSize(this.getWidth(), this.getHeight());
+    }
+
+    protected void setPresentationMode(PresentationMode presentationMode) {
+        this.presentationMode = presentationMode;
+        // A frame may be waiting for a pass of the other kind.
+        this.requestRender();
+    }
+
+    protected PresentationMode getPresentationMode() {
+        return this.presentationMode;
+    }
+
+    @Override
+    public boolean isVsyncAligned() {
+        return this.presentationMode == PresentationMode.VSYNC;
+    }
+
+    /**
+     * Number of frames delivered while the render thread was busy drawing. The decoder thread
+     * never waits in that case, it just replaces the pending frame.
+     */
+    protected int getFramesOfferedWhileDrawing() {
+        return this.frameMailbox.getFramesOfferedWhileDrawing();
     }
 
     protected void setMirror(boolean mirror) {
@@ -209,33 +271,64 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
     }
 
     public void renderFrame(VideoRenderer.I420Frame frame) {
-        Object var2 = this.statisticsLock;
-        synchronized(this.statisticsLock) {
-            ++this.framesReceived;
+        this.statistics.framesReceived.incrementAndGet();
+        RNRenderEngine engine = this.renderEngine;
+        if(engine == null) {
+            Logging.d("SurfaceViewRenderer", this.getResourceName() + "Dropping frame - Not initialized or already released.");
+            VideoRenderer.renderFrameDone(frame);
+            return;
         }
 
-        var2 = this.handlerLock;
-        synchronized(this.handlerLock) {
-            if(this.renderThreadHandler == null) {
-                Logging.d("SurfaceViewRenderer", this.getResourceName() + "Dropping frame - Not initialized or already released.");
-                VideoRenderer.renderFrameDone(frame);
-            } else {
-                Object var3 = this.frameLock;
-                synchronized(this.frameLock) {
-                    if(this.pendingFrame != null) {
-                        Object var4 = this.statisticsLock;
-                        synchronized(this.statisticsLock) {
-                            ++this.framesDropped;
-                        }
+        if(this.isAboveFrameRateCap()) {
+            this.statistics.framesThrottled.incrementAndGet();
+            VideoRenderer.renderFrameDone(frame);
+            return;
+        }
 
-                        VideoRenderer.renderFrameDone(this.pendingFrame);
-                    }
+        // Only the frame filling an empty slot needs to wake up the render thread, a superseded
+        // frame already has a render pass queued for it.
+        if(this.frameMailbox.offer(frame)) {
+            this.requestRender(engine);
+        } else {
+            this.statistics.framesDropped.incrementAndGet();
+        }
 
-                    this.pendingFrame = frame;
-                    this.renderThreadHandler.post(this.renderFrameRunnable);
-                }
+        // release() may have torn down the render thread while the frame was being published.
+        if(this.renderEngine == null && this.frameMailbox.clear()) {
+            this.statistics.framesDropped.incrementAndGet();
+        }
+    }
+
+    private boolean isAboveFrameRateCap() {
+        long intervalNs = this.minFrameIntervalNs;
+        if(intervalNs == 0L) {
+            return false;
+        }
+
+        // Accept a frame a quarter interval early, so a 30fps source capped at 15 does not
+        // degrade to 10fps because of delivery jitter.
+        long nowNs = System.nanoTime();
+        if(nowNs < this.nextFrameDueNs - intervalNs / 4) {
+            return true;
+        }
+        this.nextFrameDueNs = nowNs - this.nextFrameDueNs > intervalNs ? nowNs + intervalNs : this.nextFrameDueNs + intervalNs;
+        return false;
+    }
 
+    private void updateSurfaceSize(int width, int height) {
+        if(this.renderResolutionScale >= 1.0F || width == 0 || height == 0) {
+            if(this.fixedSurfaceSize.x != 0) {
+                this.fixedSurfaceSize.set(0, 0);
+                this.getHolder().setSizeFromLayout();
             }
+            return;
+        }
+
+        int fixedWidth = Math.max(1, Math.round(width * this.renderResolutionScale));
+        int fixedHeight = Math.max(1, Math.round(height * this.renderResolutionScale));
+        if(this.fixedSurfaceSize.x != fixedWidth || this.fixedSurfaceSize.y != fixedHeight) {
+            this.fixedSurfaceSize.set(fixedWidth, fixedHeight);
+            this.getHolder().setFixedSize(fixedWidth, fixedHeight);
         }
     }
 
@@ -272,16 +365,19 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
         }
 
         if(isNewSize) {
-            var4 = this.handlerLock;
-            synchronized(this.handlerLock) {
-                if(this.renderThreadHandler != null) {
-                    this.renderThreadHandler.postAtFrontOfQueue(this.makeBlackRunnable);
-                }
+            RNRenderEngine engine = this.renderEngine;
+            if(engine != null) {
+                engine.getHandler().postAtFrontOfQueue(this.makeBlackRunnable);
             }
         }
 
     }
 
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        this.updateSurfaceSize(width, height);
+    }
+
     protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
         Object var6 = this.layoutLock;
         synchronized(this.layoutLock) {
@@ -289,7 +385,7 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
             this.layoutSize.y = bottom - top;
         }
 
-        this.runOnRenderThread(this.renderFrameRunnable);
+        this.requestRender();
     }
 
     public void surfaceCreated(SurfaceHolder holder) {
@@ -299,6 +395,7 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
             this.isSurfaceCreated = true;
         }
 
+        this.updateDisplay();
         this.tryCreateEglSurface();
     }
 
@@ -311,15 +408,15 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
             this.surfaceSize.y = 0;
         }
 
-        this.runOnRenderThread(new Runnable() {
-            public void run() {
-                if(RNSurfaceViewRenderer.this.eglBase != null) {
-                    RNSurfaceViewRenderer.this.eglBase.detachCurrent();
-                    RNSurfaceViewRenderer.this.eglBase.releaseSurface();
+        // The surface is invalid once this callback returns, so wait for the EGL surface to go.
+        final RNRenderEngine engine = this.renderEngine;
+        if(engine != null) {
+            ThreadUtils.invokeAtFrontUninterruptibly(engine.getHandler(), new Runnable() {
+                public void run() {
+                    RNSurfaceViewRenderer.this.releaseEglSurface(engine);
                 }
-
-            }
-        });
+            });
+        }
     }
 
     public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
@@ -330,16 +427,35 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
             this.surfaceSize.y = height;
         }
 
-        this.runOnRenderThread(this.renderFrameRunnable);
+        this.requestRender();
     }
 
     private void runOnRenderThread(Runnable runnable) {
-        Object var2 = this.handlerLock;
-        synchronized(this.handlerLock) {
-            if(this.renderThreadHandler != null) {
-                this.renderThreadHandler.post(runnable);
-            }
+        RNRenderEngine engine = this.renderEngine;
+        if(engine != null) {
+            engine.getHandler().post(runnable);
+        }
+    }
+
+    private void requestRender() {
+        RNRenderEngine engine = this.renderEngine;
+        if(engine != null) {
+            this.requestRender(engine);
+        }
+    }
+
+    private void requestRender(RNRenderEngine engine) {
+        if(this.presentationMode == PresentationMode.VSYNC) {
+            engine.requestVsyncRender();
+        } else {
+            engine.requestRender();
+        }
+    }
 
+    private void releaseEglSurface(RNRenderEngine engine) {
+        if(this.eglSurface != null) {
+            engine.releaseSurface(this.eglSurface);
+            this.eglSurface = null;
         }
     }
 
@@ -347,21 +463,21 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
         return "";
     }
 
-    private void makeBlack() {
-        if(Thread.currentThread() != this.renderThread) {
+    private void makeBlack(RNRenderEngine engine) {
+        if(!engine.isOnRenderThread()) {
             throw new IllegalStateException(this.getResourceName() + "Wrong thread.");
         } else {
-            if(this.eglBase != null && this.eglBase.hasSurface()) {
+            if(this.eglSurface != null && engine.makeCurrent(this.eglSurface)) {
                 GLES20.glClearColor(0.0F, 0.0F, 0.0F, 0.0F);
                 GLES20.glClear(16384);
-                this.eglBase.swapBuffers();
+                engine.swapBuffers(this.eglSurface);
             }
 
         }
     }
 
-    private boolean checkConsistentLayout() {
-        if(Thread.currentThread() != this.renderThread) {
+    private boolean checkConsistentLayout(RNRenderEngine engine) {
+        if(!engine.isOnRenderThread()) {
             throw new IllegalStateException(this.getResourceName() + "Wrong thread.");
         } else {
             Object var1 = this.layoutLock;
@@ -371,91 +487,88 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
         }
     }
 
-    private void renderFrameOnRenderThread() {
-        if(Thread.currentThread() != this.renderThread) {
+    @Override
+    public void renderPendingFrame(RNRenderEngine engine) {
+        if(!engine.isOnRenderThread()) {
             throw new IllegalStateException(this.getResourceName() + "Wrong thread.");
         } else {
-            Object startTimeNs = this.frameLock;
-            VideoRenderer.I420Frame frame;
-            synchronized(this.frameLock) {
-                if(this.pendingFrame == null) {
-                    return;
-                }
+            VideoRenderer.I420Frame frame = this.frameMailbox.poll();
+            if(frame == null) {
+                return;
+            }
 
-                frame = this.pendingFrame;
-                this.pendingFrame = null;
+            this.frameMailbox.setConsumerBusy(true);
+            try {
+                this.drawFrame(engine, frame);
+            } finally {
+                this.frameMailbox.setConsumerBusy(false);
             }
+        }
+    }
 
-            this.updateFrameDimensionsAndReportEvents(frame);
-            if(this.eglBase != null && this.eglBase.hasSurface()) {
-                // FIXME Added this so that it doesn't show black screen when coming on screen R.Pina 20170218
-//                if(!this.checkConsistentLayout()) {
-//                    Logging.d("SurfaceViewRenderer", this.getResourceName() + "detected inconsistent layout while renderering frame");
-//                    this.makeBlack();
-//                    VideoRenderer.renderFrameDone(frame);
-//                } else {
-                    startTimeNs = this.layoutLock;
-                    synchronized(this.layoutLock) {
-                        if(this.eglBase.surfaceWidth() != this.surfaceSize.x || this.eglBase.surfaceHeight() != this.surfaceSize.y) {
-                            Logging.d("SurfaceViewRenderer", this.getResourceName() + "Egl surface does not match actual surface");
-                            this.makeBlack();
-                            VideoRenderer.renderFrameDone(frame);
-                            return;
-                        }
+    private void drawFrame(RNRenderEngine engine, VideoRenderer.I420Frame frame) {
+        this.updateFrameDimensionsAndReportEvents(frame);
+        if(this.eglSurface != null && engine.makeCurrent(this.eglSurface)) {
+            // FIXME Added this so that it doesn't show black screen when coming on screen R.Pina 20170218
+//            if(!this.checkConsistentLayout(engine)) {
+//                Logging.d("SurfaceViewRenderer", this.getResourceName() + "detected inconsistent layout while renderering frame");
+//                this.makeBlack(engine);
+//                VideoRenderer.renderFrameDone(frame);
+//            } else {
+                synchronized(this.layoutLock) {
+                    if(engine.surfaceWidth(this.eglSurface) != this.surfaceSize.x || engine.surfaceHeight(this.eglSurface) != this.surfaceSize.y) {
+                        Logging.d("SurfaceViewRenderer", this.getResourceName() + "Egl surface does not match actual surface");
+                        this.makeBlack(engine);
+                        VideoRenderer.renderFrameDone(frame);
+                        return;
                     }
+                }
 
-                    long var16 = System.nanoTime();
-                    Object i = this.layoutLock;
-                    float[] texMatrix;
-                    synchronized(this.layoutLock) {
-                        float[] rotatedSamplingMatrix = RendererCommon.rotateTextureMatrix(frame.samplingMatrix, (float)frame.rotationDegree);
-                        float[] layoutMatrix = RendererCommon.getLayoutMatrix(this.mirror, this.frameAspectRatio(), (float)this.layoutSize.x / (float)this.layoutSize.y);
-                        texMatrix = RendererCommon.multiplyMatrices(rotatedSamplingMatrix, layoutMatrix);
-                    }
+                long startTimeNs = System.nanoTime();
+                float[] texMatrix;
+                synchronized(this.layoutLock) {
+                    // Recomputed only when rotation, mirror or one of the aspect ratios changed.
+                    texMatrix = this.textureMatrix.update(frame.samplingMatrix, frame.rotationDegree, this.mirror, this.frameAspectRatio(), (float)this.layoutSize.x / (float)this.layoutSize.y);
+                }
 
-                    GLES20.glClear(16384);
-                    if(frame.yuvFrame) {
-                        if(this.yuvTextures == null) {
-                            this.yuvTextures = new int[3];
+                GLES20.glClear(16384);
+                if(frame.yuvFrame) {
+                    if(this.yuvTextures == null) {
+                        this.yuvTextures = new int[3];
 
-                            for(int var17 = 0; var17 < 3; ++var17) {
-                                this.yuvTextures[var17] = GlUtil.generateTexture(3553);
-                            }
+                        for(int i = 0; i < 3; ++i) {
+                            this.yuvTextures[i] = GlUtil.generateTexture(3553);
                         }
-
-                        this.yuvUploader.uploadYuvData(this.yuvTextures, frame.width, frame.height, frame.yuvStrides, frame.yuvPlanes);
-                        this.drawer.drawYuv(this.yuvTextures, texMatrix, frame.rotatedWidth(), frame.rotatedHeight(), 0, 0, this.surfaceSize.x, this.surfaceSize.y);
-                    } else {
-                        this.drawer.drawOes(frame.textureId, texMatrix, frame.rotatedWidth(), frame.rotatedHeight(), 0, 0, this.surfaceSize.x, this.surfaceSize.y);
                     }
 
-                    this.eglBase.swapBuffers();
-                    VideoRenderer.renderFrameDone(frame);
-                    i = this.statisticsLock;
-                    synchronized(this.statisticsLock) {
-                        if(this.framesRendered == 0) {
-                            this.firstFrameTimeNs = var16;
-                            Object var18 = this.layoutLock;
-                            synchronized(this.layoutLock) {
-                                Logging.d("SurfaceViewRenderer", this.getResourceName() + "Reporting first rendered frame.");
-                                if(this.rendererEvents != null) {
-                                    this.rendererEvents.onFirstFrameRendered();
-                                }
-                            }
-                        }
+                    this.yuvUploader.uploadYuvData(this.yuvTextures, frame.width, frame.height, frame.yuvStrides, frame.yuvPlanes);
+                    this.drawer.drawYuv(this.yuvTextures, texMatrix, frame.rotatedWidth(), frame.rotatedHeight(), 0, 0, this.surfaceSize.x, this.surfaceSize.y);
+                } else {
+                    this.drawer.drawOes(frame.textureId, texMatrix, frame.rotatedWidth(), frame.rotatedHeight(), 0, 0, this.surfaceSize.x, this.surfaceSize.y);
+                }
 
-                        ++this.framesRendered;
-                        this.renderTimeNs += System.nanoTime() - var16;
-                        if(this.framesRendered % 300 == 0) {
-                            this.logStatistics();
+                engine.swapBuffers(this.eglSurface);
+                VideoRenderer.renderFrameDone(frame);
+                if(this.statistics.framesRendered.get() == 0) {
+                    synchronized(this.layoutLock) {
+                        Logging.d("SurfaceViewRenderer", this.getResourceName() + "Reporting first rendered frame.");
+                        if(this.rendererEvents != null) {
+                            this.rendererEvents.onFirstFrameRendered();
                         }
-
                     }
-//                }
-            } else {
-                Logging.d("SurfaceViewRenderer", this.getResourceName() + "No surface to draw on");
-                VideoRenderer.renderFrameDone(frame);
-            }
+                }
+
+                if(engine.isVsyncLate()) {
+                    this.statistics.vsyncsLate.incrementAndGet();
+                }
+                this.statistics.vsyncsSkipped.addAndGet(engine.getVsyncsSkipped());
+                if(this.statistics.recordFrameRendered(startTimeNs, System.nanoTime() - startTimeNs) % 300 == 0) {
+                    this.logStatistics();
+                }
+//            }
+        } else {
+            Logging.d("SurfaceViewRenderer", this.getResourceName() + "No surface to draw on");
+            VideoRenderer.renderFrameDone(frame);
         }
     }
 
@@ -489,15 +602,16 @@ public class RNSurfaceViewRenderer extends SurfaceView implements SurfaceHolder.
     }
 
     private void logStatistics() {
-        Object var1 = this.statisticsLock;
-        synchronized(this.statisticsLock) {
-            Logging.d("SurfaceViewRenderer", this.getResourceName() + "Frames received: " + this.framesReceived + ". Dropped: " + this.framesDropped + ". Rendered: " + this.framesRendered);
-            if(this.framesReceived > 0 && this.framesRendered > 0) {
-                long timeSinceFirstFrameNs = System.nanoTime() - this.firstFrameTimeNs;
-                Logging.d("SurfaceViewRenderer", this.getResourceName() + "Duration: " + (int)((double)timeSinceFirstFrameNs / 1000000.0D) + " ms. FPS: " + (double)this.framesRendered * 1.0E9D / (double)timeSinceFirstFrameNs);
-                Logging.d("SurfaceViewRenderer", this.getResourceName() + "Average render time: " + (int)(this.renderTimeNs / (long)(1000 * this.framesRendered)) + " us.");
+        int framesReceived = this.statistics.framesReceived.get();
+        int framesRendered = this.statistics.framesRendered.get();
+        Logging.d("SurfaceViewRenderer", this.getResourceName() + "Frames received: " + framesReceived + ". Dropped: " + this.statistics.framesDropped.get() + ". Throttled: " + this.statistics.framesThrottled.get() + ". Rendered: " + framesRendered + ". Offered while drawing: " + this.frameMailbox.getFramesOfferedWhileDrawing());
+        if(framesReceived > 0 && framesRendered > 0) {
+            long timeSinceFirstFrameNs = System.nanoTime() - this.statistics.firstFrameTimeNs;
+            Logging.d("SurfaceViewRenderer", this.getResourceName() + "Duration: " + (int)((double)timeSinceFirstFrameNs / 1000000.0D) + " ms. FPS: " + (double)framesRendered * 1.0E9D / (double)timeSinceFirstFrameNs);
+            Logging.d("SurfaceViewRenderer", this.getResourceName() + "Average render time: " + (int)(this.statistics.renderTimeNs.get() / (long)(1000 * framesRendered)) + " us.");
+            if(this.presentationMode == PresentationMode.VSYNC) {
+                Logging.d("SurfaceViewRenderer", this.getResourceName() + "Late vsyncs: " + this.statistics.vsyncsLate.get() + ". Skipped vsyncs: " + this.statistics.vsyncsSkipped.get());
             }
-
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.twilio.video;
+
+import java.util.Arrays;
+
+/**
+ * Caches the texture matrix handed to the drawer. It is the same product as
+ * {@code RendererCommon.multiplyMatrices(RendererCommon.rotateTextureMatrix(...),
+ * RendererCommon.getLayoutMatrix(...))}, but only recomputed when one of its inputs changes and
+ * always written into preallocated buffers, so rendering a steady stream allocates nothing.
+ *
+ * Matrices are 4x4 in OpenGL column-major order. Not thread safe, owned by the render thread.
+ */
+public class RNTextureMatrix {
+    private final float[] samplingMatrix        = new float[16];
+    private final float[] rotationMatrix        = new float[16];
+    private final float[] rotatedSamplingMatrix = new float[16];
+    private final float[] layoutMatrix          = new float[16];
+    private final float[] textureMatrix         = new float[16];
+    private boolean valid;
+    private int     rotationDegree;
+    private boolean mirror;
+    private float   frameAspectRatio;
+    private float   layoutAspectRatio;
+    private int     recomputeCount;
+
+    /**
+     * Returns the texture matrix for the given frame and layout. The returned array is owned by
+     * this cache and is overwritten by the next call that changes any input.
+     */
+    public float[] update(float[] frameSamplingMatrix,
+                          int rotationDegree,
+                          boolean mirror,
+                          float frameAspectRatio,
+                          float layoutAspectRatio) {
+        if (this.valid
+                && this.rotationDegree == rotationDegree
+                && this.mirror == mirror
+                && Float.compare(this.frameAspectRatio, frameAspectRatio) == 0
+                && Float.compare(this.layoutAspectRatio, layoutAspectRatio) == 0
+                && Arrays.equals(this.samplingMatrix, frameSamplingMatrix)) {
+            return this.textureMatrix;
+        }
+
+        System.arraycopy(frameSamplingMatrix, 0, this.samplingMatrix, 0, 16);
+        this.rotationDegree = rotationDegree;
+        this.mirror = mirror;
+        this.frameAspectRatio = frameAspectRatio;
+        this.layoutAspectRatio = layoutAspectRatio;
+
+        setRotation(this.rotationMatrix, rotationDegree);
+        multiply(this.rotatedSamplingMatrix, this.samplingMatrix, this.rotationMatrix);
+        setLayout(this.layoutMatrix, mirror, frameAspectRatio, layoutAspectRatio);
+        multiply(this.textureMatrix, this.rotatedSamplingMatrix, this.layoutMatrix);
+        this.valid = true;
+        ++this.recomputeCount;
+        return this.textureMatrix;
+    }
+
+    /**
+     * Forces the next {@link #update} to recompute, e.g. after the renderer was released.
+     */
+    public void invalidate() {
+        this.valid = false;
+    }
+
+    public int getRecomputeCount() {
+        return this.recomputeCount;
+    }
+
+    /*
+     * Rotation around the z axis, centered on the middle of the texture.
+     */
+    static void setRotation(float[] matrix, float degrees) {
+        setIdentity(matrix);
+        double radians = Math.toRadians(degrees);
+        float sin = (float) Math.sin(radians);
+        float cos = (float) Math.cos(radians);
+        matrix[0] = cos;
+        matrix[1] = sin;
+        matrix[4] = -sin;
+        matrix[5] = cos;
+        adjustOrigin(matrix);
+    }
+
+    /*
+     * Scales the frame to fill the layout without distortion, optionally mirrored horizontally.
+     */
+    static void setLayout(float[] matrix, boolean mirror, float frameAspectRatio, float layoutAspectRatio) {
+        float scaleX = 1;
+        float scaleY = 1;
+        if (layoutAspectRatio > frameAspectRatio) {
+            scaleY = frameAspectRatio / layoutAspectRatio;
+        } else {
+            scaleX = layoutAspectRatio / frameAspectRatio;
+        }
+        if (mirror) {
+            scaleX *= -1;
+        }
+        setIdentity(matrix);
+        matrix[0] = scaleX;
+        matrix[5] = scaleY;
+        adjustOrigin(matrix);
+    }
+
+    /*
+     * result = lhs * rhs. result must not alias either operand.
+     */
+    static void multiply(float[] result, float[] lhs, float[] rhs) {
+        for (int column = 0; column < 4; ++column) {
+            for (int row = 0; row < 4; ++row) {
+                float sum = 0;
+                for (int i = 0; i < 4; ++i) {
+                    sum += lhs[i * 4 + row] * rhs[column * 4 + i];
+                }
+                result[column * 4 + row] = sum;
+            }
+        }
+    }
+
+    private static void setIdentity(float[] matrix) {
+        Arrays.fill(matrix, 0);
+        matrix[0] = 1;
+        matrix[5] = 1;
+        matrix[10] = 1;
+        matrix[15] = 1;
+    }
+
+    /*
+     * Moves the origin to the center of the texture: pre-translates by -0.5 and post-translates
+     * by 0.5, like RendererCommon does.
+     */
+    private static void adjustOrigin(float[] matrix) {
+        matrix[12] -= 0.5f * (matrix[0] + matrix[4]);
+        matrix[13] -= 0.5f * (matrix[1] + matrix[5]);
+        matrix[12] += 0.5f;
+        matrix[13] += 0.5f;
+    }
+}
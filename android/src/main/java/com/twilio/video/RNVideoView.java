@@ -17,7 +17,7 @@ public class RNVideoView extends RNSurfaceViewRenderer implements VideoRenderer
     private       boolean                       overlaySurface;
     private       VideoScaleType                videoScaleType;
     private       Listener                      listener;
-    private       EglBaseProvider               eglBaseProvider;
+    private       RNRenderEngine                renderEngine;
 
     public RNVideoView(Context context) {
         this(context, (AttributeSet)null);
@@ -51,14 +51,14 @@ public class RNVideoView extends RNSurfaceViewRenderer implements VideoRenderer
     protected void onAttachedToWindow() {
         super.onAttachedToWindow();
         if(!this.isInEditMode()) {
-            this.eglBaseProvider = EglBaseProvider.instance(this);
+            this.renderEngine = RNRenderEngine.instance(this);
             this.setupRenderer();
         }
     }
 
     protected void onDetachedFromWindow() {
         super.release();
-        this.eglBaseProvider.release(this);
+        this.renderEngine.release(this);
         super.onDetachedFromWindow();
     }
 
@@ -82,6 +82,22 @@ public class RNVideoView extends RNSurfaceViewRenderer implements VideoRenderer
         this.refreshRenderer();
     }
 
+    public void setPresentationMode(PresentationMode presentationMode) {
+        super.setPresentationMode(presentationMode);
+    }
+
+    public void setMaxFps(int maxFps) {
+        super.setMaxFps(maxFps);
+    }
+
+    public void setRenderResolutionScale(float scale) {
+        super.setRenderResolutionScale(scale);
+    }
+
+    public void getStatistics(RNRendererStatistics.Snapshot snapshot) {
+        super.getStatistics(snapshot);
+    }
+
     public void setListener(Listener listener) {
         this.listener = listener;
     }
@@ -96,7 +112,7 @@ public class RNVideoView extends RNSurfaceViewRenderer implements VideoRenderer
     }
 
     private void setupRenderer() {
-        this.init(this.eglBaseProvider.getRootEglBase().getEglBaseContext(), this.internalEventListener);
+        this.init(this.renderEngine, this.internalEventListener);
         this.setMirror(this.mirror);
         this.setScalingType(this.convertToWebRtcScaleType(this.videoScaleType));
         this.setZOrderMediaOverlay(this.overlaySurface);
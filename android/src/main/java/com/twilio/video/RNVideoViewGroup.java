@@ -2,23 +2,42 @@ package com.twilio.video;
 
 import android.content.Context;
 import android.graphics.Point;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.ViewGroup;
 import android.util.Log;
 
 import org.webrtc.RendererCommon;
 
 public class RNVideoViewGroup extends ViewGroup {
-  private VideoView surfaceViewRenderer = null;
+  /**
+   * Receives renderer statistics on the UI thread. The snapshot is reused between calls.
+   */
+  public interface RendererStatsListener {
+    void onRendererStats(RNRendererStatistics.Snapshot snapshot);
+  }
+
+  private RNVideoView surfaceViewRenderer = null;
   private int videoWidth = 0;
   private int videoHeight = 0;
   private final Object layoutSync = new Object();
   private RendererCommon.ScalingType scalingType = RendererCommon.ScalingType.SCALE_ASPECT_FIT;
+  private final Handler uiThreadHandler = new Handler(Looper.getMainLooper());
+  private final RNRendererStatistics.Snapshot statsSnapshot = new RNRendererStatistics.Snapshot();
+  private final Runnable statsRunnable = new Runnable() {
+    @Override
+    public void run() {
+      reportRendererStats();
+    }
+  };
+  private RendererStatsListener rendererStatsListener = null;
+  private int rendererStatsIntervalMs = 0;
 
 
   public RNVideoViewGroup(Context context) {
     super(context);
 
-    surfaceViewRenderer = new VideoView(context);
+    surfaceViewRenderer = new RNVideoView(context);
     surfaceViewRenderer.setVideoScaleType(VideoScaleType.ASPECT_FIT);
     addView(surfaceViewRenderer);
     surfaceViewRenderer.setListener(
@@ -40,7 +59,7 @@ public class RNVideoViewGroup extends ViewGroup {
     );
   }
 
-  public VideoView getSurfaceViewRenderer() {
+  public RNVideoView getSurfaceViewRenderer() {
     return surfaceViewRenderer;
   }
 
@@ -48,6 +67,77 @@ public class RNVideoViewGroup extends ViewGroup {
     this.scalingType = scalingType;
   }
 
+  public void setVideoScaleType(VideoScaleType videoScaleType) {
+    switch (videoScaleType) {
+      case ASPECT_FILL:
+        setScalingType(RendererCommon.ScalingType.SCALE_ASPECT_FILL);
+        break;
+      case ASPECT_BALANCED:
+        setScalingType(RendererCommon.ScalingType.SCALE_ASPECT_BALANCED);
+        break;
+      default:
+        setScalingType(RendererCommon.ScalingType.SCALE_ASPECT_FIT);
+        break;
+    }
+    surfaceViewRenderer.setVideoScaleType(videoScaleType);
+    requestLayout();
+  }
+
+  public void setMirror(boolean mirror) {
+    surfaceViewRenderer.setMirror(mirror);
+  }
+
+  public void setMaxFps(int maxFps) {
+    surfaceViewRenderer.setMaxFps(maxFps);
+  }
+
+  public void setRenderResolutionScale(float scale) {
+    surfaceViewRenderer.setRenderResolutionScale(scale);
+  }
+
+  public void setPresentationMode(RNSurfaceViewRenderer.PresentationMode presentationMode) {
+    surfaceViewRenderer.setPresentationMode(presentationMode);
+  }
+
+  public void setRendererStatsListener(RendererStatsListener listener) {
+    this.rendererStatsListener = listener;
+  }
+
+  /**
+   * Reports renderer statistics every intervalMs while attached to a window. 0 stops reporting.
+   */
+  public void setRendererStatsInterval(int intervalMs) {
+    this.rendererStatsIntervalMs = Math.max(0, intervalMs);
+    uiThreadHandler.removeCallbacks(statsRunnable);
+    if (rendererStatsIntervalMs > 0 && getWindowToken() != null) {
+      // Starts the interval, the first report covers rendering from here on.
+      surfaceViewRenderer.getStatistics(statsSnapshot);
+      uiThreadHandler.postDelayed(statsRunnable, rendererStatsIntervalMs);
+    }
+  }
+
+  @Override
+  protected void onAttachedToWindow() {
+    super.onAttachedToWindow();
+    setRendererStatsInterval(rendererStatsIntervalMs);
+  }
+
+  @Override
+  protected void onDetachedFromWindow() {
+    uiThreadHandler.removeCallbacks(statsRunnable);
+    super.onDetachedFromWindow();
+  }
+
+  private void reportRendererStats() {
+    surfaceViewRenderer.getStatistics(statsSnapshot);
+    if (rendererStatsListener != null) {
+      rendererStatsListener.onRendererStats(statsSnapshot);
+    }
+    if (rendererStatsIntervalMs > 0) {
+      uiThreadHandler.postDelayed(statsRunnable, rendererStatsIntervalMs);
+    }
+  }
+
   @Override
   protected void onLayout(boolean changed, int l, int t, int r, int b) {
     int height = b - t;
@@ -0,0 +1,174 @@
+package com.twiliorn.library;
+
+import android.support.annotation.Nullable;
+
+import com.twilio.video.LocalVideoTrack;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * State shared by a call view and the previews showing its video, keyed by the sessionId prop.
+ *
+ * Views acquire the session with {@link #instance(String, Object)} and release it when React
+ * drops them; the session is forgotten once its last owner released it. Owners and local
+ * previews are only referenced weakly, so a view that is never released does not keep its
+ * Activity or its EGL surface alive. All methods must be called on the UI thread, except
+ * {@link #get(String)} and {@link #getRoomStateStore()} which synchronous JS reads use.
+ */
+class CallSession {
+
+    static final String DEFAULT_SESSION_ID = "default";
+
+    private static final ConcurrentHashMap<String, CallSession> sessions = new ConcurrentHashMap<>();
+
+    private final String                                  sessionId;
+    private final RemoteVideoRegistry                     remoteVideoRegistry = new RemoteVideoRegistry();
+    private final RoomStateStore                          roomStateStore      = new RoomStateStore();
+    private final Set<Object>                             owners              = Collections.newSetFromMap(new WeakHashMap<Object, Boolean>());
+    private final List<WeakReference<TwilioVideoPreview>> localPreviews       = new ArrayList<>();
+    private WeakReference<CustomTwilioVideoView>          callView            = new WeakReference<>(null);
+    private LocalVideoTrack localVideoTrack;
+
+    static CallSession instance(@Nullable String sessionId, Object owner) {
+        if (sessionId == null) {
+            sessionId = DEFAULT_SESSION_ID;
+        }
+        CallSession session = sessions.get(sessionId);
+        if (session == null) {
+            session = new CallSession(sessionId);
+            sessions.put(sessionId, session);
+        }
+        session.owners.add(owner);
+        return session;
+    }
+
+    /**
+     * The session if a view holds it, without acquiring it.
+     */
+    @Nullable
+    static CallSession get(@Nullable String sessionId) {
+        return sessions.get(sessionId != null ? sessionId : DEFAULT_SESSION_ID);
+    }
+
+    private CallSession(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    void release(Object owner) {
+        if (callView.get() == owner) {
+            callView.clear();
+        }
+        if (!owners.remove(owner) || !owners.isEmpty()) {
+            return;
+        }
+        sessions.remove(sessionId);
+        setLocalVideoTrack(null);
+        localPreviews.clear();
+        remoteVideoRegistry.clear();
+        remoteVideoRegistry.setListener(null);
+        roomStateStore.setListener(null);
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    RemoteVideoRegistry getRemoteVideoRegistry() {
+        return remoteVideoRegistry;
+    }
+
+    RoomStateStore getRoomStateStore() {
+        return roomStateStore;
+    }
+
+    /**
+     * The call view of the session, which TwilioVideoModule drives. The last one bound wins.
+     */
+    void setCallView(CustomTwilioVideoView callView) {
+        this.callView = new WeakReference<>(callView);
+    }
+
+    @Nullable
+    CustomTwilioVideoView getCallView() {
+        return callView.get();
+    }
+
+    // ===== LOCAL VIDEO ===========================================================================
+
+    /**
+     * Moves the local previews of the session to the given track, or detaches them.
+     */
+    void setLocalVideoTrack(@Nullable LocalVideoTrack localVideoTrack) {
+        if (this.localVideoTrack == localVideoTrack) {
+            return;
+        }
+        Iterator<WeakReference<TwilioVideoPreview>> iterator = localPreviews.iterator();
+        while (iterator.hasNext()) {
+            TwilioVideoPreview preview = iterator.next().get();
+            if (preview == null) {
+                iterator.remove();
+                continue;
+            }
+            if (this.localVideoTrack != null) {
+                this.localVideoTrack.removeRenderer(preview.getSurfaceViewRenderer());
+            }
+            if (localVideoTrack != null) {
+                localVideoTrack.addRenderer(preview.getSurfaceViewRenderer());
+            }
+        }
+        this.localVideoTrack = localVideoTrack;
+    }
+
+    @Nullable
+    LocalVideoTrack getLocalVideoTrack() {
+        return localVideoTrack;
+    }
+
+    void bindLocalPreview(TwilioVideoPreview preview) {
+        for (WeakReference<TwilioVideoPreview> reference : localPreviews) {
+            if (reference.get() == preview) {
+                return;
+            }
+        }
+        localPreviews.add(new WeakReference<>(preview));
+        if (localVideoTrack != null) {
+            localVideoTrack.addRenderer(preview.getSurfaceViewRenderer());
+        }
+    }
+
+    void unbindLocalPreview(TwilioVideoPreview preview) {
+        boolean bound = false;
+        Iterator<WeakReference<TwilioVideoPreview>> iterator = localPreviews.iterator();
+        while (iterator.hasNext()) {
+            TwilioVideoPreview boundPreview = iterator.next().get();
+            if (boundPreview == preview) {
+                bound = true;
+            }
+            if (boundPreview == null || boundPreview == preview) {
+                iterator.remove();
+            }
+        }
+        if (bound && localVideoTrack != null) {
+            localVideoTrack.removeRenderer(preview.getSurfaceViewRenderer());
+        }
+    }
+
+    /**
+     * Mirrors the local previews, front camera video is shown mirrored.
+     */
+    void setLocalMirror(boolean mirror) {
+        for (WeakReference<TwilioVideoPreview> reference : localPreviews) {
+            TwilioVideoPreview preview = reference.get();
+            if (preview != null) {
+                preview.getSurfaceViewRenderer().setMirror(mirror);
+            }
+        }
+    }
+}
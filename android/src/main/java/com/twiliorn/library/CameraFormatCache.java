@@ -0,0 +1,209 @@
+package com.twiliorn.library;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.twilio.video.CameraCapturer;
+import com.twilio.video.VideoDimensions;
+import com.twilio.video.VideoFormat;
+import com.twilio.video.VideoPixelFormat;
+import com.twiliorn.library.permissions.SharedPreferencesManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Remembers the formats each camera supports, and the format each capture profile ended up
+ * using on each camera, across app starts. Keyed by the build fingerprint in
+ * SharedPreferencesManager.
+ *
+ * Enumerating formats opens the camera through the HAL, which is slow on some devices and always
+ * gives the same answer on the same build. A call start uses the stored capture format, or
+ * selects from the stored formats, instead. The cameras read from disk are enumerated again
+ * later on the cache's refresh thread, once the camera is closed. Thread safe.
+ */
+class CameraFormatCache {
+
+    private static final String TAG = "CameraFormatCache";
+
+    /*
+     * Gives the capturer time to close the camera after its track was released, a camera that is
+     * still open enumerates as having no format.
+     */
+    private static final long REFRESH_DELAY_MS = 2000L;
+
+    private static CameraFormatCache instance;
+
+    private final SharedPreferencesManager preferencesManager;
+    private final String fingerprint = Build.FINGERPRINT;
+    private final HashMap<CameraCapturer.CameraSource, List<VideoFormat>> formats = new HashMap<>();
+    private final HashSet<CameraCapturer.CameraSource> staleSources = new HashSet<>();
+    private Handler refreshHandler;
+
+    static synchronized CameraFormatCache instance(Context context) {
+        if (instance == null) {
+            instance = new CameraFormatCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private CameraFormatCache(Context context) {
+        this.preferencesManager = new SharedPreferencesManager(context);
+    }
+
+    /**
+     * The formats of the capturer's current camera: from memory, from disk, or enumerated and
+     * stored when neither has them. Empty when the camera reports no format.
+     */
+    List<VideoFormat> getSupportedFormats(CameraCapturer cameraCapturer) {
+        List<VideoFormat> storedFormats = getStoredFormats(cameraCapturer);
+        if (!storedFormats.isEmpty()) {
+            return storedFormats;
+        }
+        CameraCapturer.CameraSource cameraSource = cameraCapturer.getCameraSource();
+        long start = SystemClock.elapsedRealtime();
+        List<VideoFormat> supportedFormats = cameraCapturer.getSupportedFormats();
+        Log.i(TAG, "Enumerated " + cameraSource + " in " + (SystemClock.elapsedRealtime() - start) + " ms");
+        store(cameraSource, supportedFormats);
+        return supportedFormats;
+    }
+
+    /**
+     * The formats of the capturer's current camera from memory or disk, without enumerating. Use
+     * while the camera is open, it would enumerate as having no format. Empty when none is known.
+     */
+    synchronized List<VideoFormat> getStoredFormats(CameraCapturer cameraCapturer) {
+        CameraCapturer.CameraSource cameraSource = cameraCapturer.getCameraSource();
+        List<VideoFormat> supportedFormats = formats.get(cameraSource);
+        if (supportedFormats != null) {
+            return supportedFormats;
+        }
+        supportedFormats = decode(preferencesManager.getCameraFormats(fingerprint, cameraSource.name()));
+        if (supportedFormats == null) {
+            return Collections.emptyList();
+        }
+        formats.put(cameraSource, supportedFormats);
+        staleSources.add(cameraSource);
+        return supportedFormats;
+    }
+
+    /**
+     * Enumerates the capturer's camera again on the refresh thread if its formats were read
+     * from disk. Call once the capturer's track is released.
+     */
+    void refreshInBackground(@Nullable final CameraCapturer cameraCapturer) {
+        if (cameraCapturer == null) {
+            return;
+        }
+        final CameraCapturer.CameraSource cameraSource = cameraCapturer.getCameraSource();
+        synchronized (this) {
+            if (!staleSources.remove(cameraSource)) {
+                return;
+            }
+        }
+        refresh().postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                List<VideoFormat> supportedFormats = cameraCapturer.getSupportedFormats();
+                if (supportedFormats.isEmpty()) {
+                    // Still open, or in use by another app. Keep what is stored.
+                    synchronized (CameraFormatCache.this) {
+                        staleSources.add(cameraSource);
+                    }
+                    return;
+                }
+                store(cameraSource, supportedFormats);
+            }
+        }, REFRESH_DELAY_MS);
+    }
+
+    /*
+     * One thread for all refreshes, started on the first one and kept for the process.
+     */
+    private synchronized Handler refresh() {
+        if (refreshHandler == null) {
+            HandlerThread refreshThread = new HandlerThread(TAG + "-refresh");
+            refreshThread.start();
+            refreshHandler = new Handler(refreshThread.getLooper());
+        }
+        return refreshHandler;
+    }
+
+    /**
+     * The format the profile used last time with the capturer's current camera on this build, to
+     * start from without selecting.
+     */
+    @Nullable
+    VideoFormat getCaptureFormat(CameraCapturer cameraCapturer, CaptureProfile captureProfile) {
+        List<VideoFormat> decoded = decode(preferencesManager.getCaptureFormat(
+                fingerprint, captureFormatKey(cameraCapturer, captureProfile)));
+        return decoded != null && decoded.size() == 1 ? decoded.get(0) : null;
+    }
+
+    void setCaptureFormat(CameraCapturer cameraCapturer, CaptureProfile captureProfile, VideoFormat format) {
+        preferencesManager.setCaptureFormat(fingerprint, captureFormatKey(cameraCapturer, captureProfile),
+                                            encode(Collections.singletonList(format)));
+    }
+
+    private static String captureFormatKey(CameraCapturer cameraCapturer, CaptureProfile captureProfile) {
+        return cameraCapturer.getCameraSource().name() + "/" + captureProfile;
+    }
+
+    private synchronized void store(CameraCapturer.CameraSource cameraSource, List<VideoFormat> supportedFormats) {
+        if (supportedFormats.isEmpty()) {
+            return;
+        }
+        formats.put(cameraSource, supportedFormats);
+        preferencesManager.setCameraFormats(fingerprint, cameraSource.name(), encode(supportedFormats));
+    }
+
+    // ===== ENCODING ==============================================================================
+
+    /*
+     * "1280x720@30:NV21;640x480@30:NV21"
+     */
+    private static String encode(List<VideoFormat> supportedFormats) {
+        StringBuilder encoded = new StringBuilder();
+        for (VideoFormat format : supportedFormats) {
+            if (encoded.length() > 0) {
+                encoded.append(';');
+            }
+            encoded.append(format.dimensions.width).append('x').append(format.dimensions.height)
+                   .append('@').append(format.framerate)
+                   .append(':').append(format.pixelFormat.name());
+        }
+        return encoded.toString();
+    }
+
+    @Nullable
+    private static List<VideoFormat> decode(@Nullable String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return null;
+        }
+        try {
+            List<VideoFormat> supportedFormats = new ArrayList<>();
+            for (String entry : encoded.split(";")) {
+                int x = entry.indexOf('x');
+                int at = entry.indexOf('@');
+                int colon = entry.indexOf(':');
+                VideoDimensions dimensions = new VideoDimensions(Integer.parseInt(entry.substring(0, x)),
+                                                                 Integer.parseInt(entry.substring(x + 1, at)));
+                supportedFormats.add(new VideoFormat(dimensions,
+                                                     Integer.parseInt(entry.substring(at + 1, colon)),
+                                                     VideoPixelFormat.valueOf(entry.substring(colon + 1))));
+            }
+            return Collections.unmodifiableList(supportedFormats);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Ignoring unreadable camera formats " + encoded, e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.twiliorn.library;
+
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.twilio.video.AspectRatio;
+import com.twilio.video.VideoConstraints;
+import com.twilio.video.VideoDimensions;
+import com.twilio.video.VideoFormat;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A capture budget from JS, e.g. "720p30", "480p15 4:3" or "batterySaver", and the camera format
+ * that fits it best.
+ *
+ * Heights are the short side of the frame, so a budget applies the same way to portrait and
+ * landscape formats. Without an aspect ratio any is accepted. When no format fits the budget the
+ * smallest one is used, a budget is a cap.
+ */
+class CaptureProfile {
+
+    private static final String TAG = "CaptureProfile";
+
+    private static final Pattern BUDGET = Pattern.compile("(\\d+)p(\\d+)(?:\\s+(\\d+):(\\d+))?");
+
+    /*
+     * Formats within this much of the requested aspect ratio match it, sensors round sizes.
+     */
+    private static final float ASPECT_TOLERANCE = 0.05f;
+
+    static final CaptureProfile BATTERY_SAVER = new CaptureProfile(480, 15, 0, 0);
+
+    final int maxHeight;
+    final int maxFps;
+    final int aspectWidth;
+    final int aspectHeight;
+
+    CaptureProfile(int maxHeight, int maxFps, int aspectWidth, int aspectHeight) {
+        this.maxHeight = maxHeight;
+        this.maxFps = maxFps;
+        this.aspectWidth = aspectWidth;
+        this.aspectHeight = aspectHeight;
+    }
+
+    /**
+     * Parses a budget, null or "default" for the SDK's own constraints.
+     */
+    @Nullable
+    static CaptureProfile parse(@Nullable String budget) {
+        if (budget == null || budget.equals("default")) {
+            return null;
+        }
+        if (budget.equals("batterySaver")) {
+            return BATTERY_SAVER;
+        }
+        Matcher matcher = BUDGET.matcher(budget.trim());
+        if (!matcher.matches()) {
+            Log.w(TAG, "Ignoring capture profile " + budget + ", expected e.g. 720p30 or 720p30 16:9");
+            return null;
+        }
+        int aspectWidth = matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : 0;
+        int aspectHeight = matcher.group(4) != null ? Integer.parseInt(matcher.group(4)) : 0;
+        return new CaptureProfile(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                                  aspectWidth, aspectHeight);
+    }
+
+    /**
+     * The profile lowered to stay within the budget, keeping the budget's aspect ratio.
+     */
+    static CaptureProfile capped(@Nullable CaptureProfile budget, CaptureProfile profile) {
+        if (budget == null) {
+            return profile;
+        }
+        return new CaptureProfile(Math.min(budget.maxHeight, profile.maxHeight), Math.min(budget.maxFps, profile.maxFps),
+                                  budget.aspectWidth, budget.aspectHeight);
+    }
+
+    /**
+     * Picks the largest supported format within the budget, the smallest one if none fits, or
+     * null when the camera reports no format.
+     */
+    @Nullable
+    VideoFormat selectFormat(List<VideoFormat> supportedFormats) {
+        VideoFormat best = null;
+        VideoFormat smallest = null;
+        for (VideoFormat format : supportedFormats) {
+            if (smallest == null || pixels(format) < pixels(smallest)) {
+                smallest = format;
+            }
+            if (!fits(format)) {
+                continue;
+            }
+            if (best == null || compare(format, best) > 0) {
+                best = format;
+            }
+        }
+        return best != null ? best : smallest;
+    }
+
+    /**
+     * Constraints capping capture to the format, at the budget's frame rate at most.
+     */
+    VideoConstraints constraints(VideoFormat format) {
+        int width = format.dimensions.width;
+        int height = format.dimensions.height;
+        int fps = Math.min(format.framerate, maxFps);
+        int divisor = gcd(width, height);
+        Log.i(TAG, "Capturing " + width + "x" + height + "@" + fps + " for " + this);
+        return new VideoConstraints.Builder()
+                .maxVideoDimensions(new VideoDimensions(width, height))
+                .maxFps(fps)
+                .aspectRatio(new AspectRatio(width / divisor, height / divisor))
+                .build();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CaptureProfile)) {
+            return false;
+        }
+        CaptureProfile other = (CaptureProfile) o;
+        return maxHeight == other.maxHeight && maxFps == other.maxFps
+                && aspectWidth == other.aspectWidth && aspectHeight == other.aspectHeight;
+    }
+
+    @Override
+    public int hashCode() {
+        return ((maxHeight * 31 + maxFps) * 31 + aspectWidth) * 31 + aspectHeight;
+    }
+
+    @Override
+    public String toString() {
+        String profile = maxHeight + "p" + maxFps;
+        return aspectWidth > 0 ? profile + " " + aspectWidth + ":" + aspectHeight : profile;
+    }
+
+    /**
+     * Whether the format is within the budget, in portrait as in landscape.
+     */
+    boolean fits(VideoFormat format) {
+        int shortSide = Math.min(format.dimensions.width, format.dimensions.height);
+        if (shortSide > maxHeight) {
+            return false;
+        }
+        if (aspectWidth <= 0 || aspectHeight <= 0) {
+            return true;
+        }
+        int longSide = Math.max(format.dimensions.width, format.dimensions.height);
+        float aspect = (float) Math.max(aspectWidth, aspectHeight) / Math.min(aspectWidth, aspectHeight);
+        return Math.abs((float) longSide / shortSide - aspect) <= ASPECT_TOLERANCE;
+    }
+
+    /*
+     * More pixels first, then a frame rate closer to the budget.
+     */
+    private int compare(VideoFormat a, VideoFormat b) {
+        int byPixels = pixels(a) - pixels(b);
+        if (byPixels != 0) {
+            return byPixels;
+        }
+        return Math.min(a.framerate, maxFps) - Math.min(b.framerate, maxFps);
+    }
+
+    private static int pixels(VideoFormat format) {
+        return format.dimensions.width * format.dimensions.height;
+    }
+
+    private static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+}
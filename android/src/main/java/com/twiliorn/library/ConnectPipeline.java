@@ -0,0 +1,749 @@
+package com.twiliorn.library;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.twilio.video.AudioTrack;
+import com.twilio.video.CameraCapturer;
+import com.twilio.video.ConnectOptions;
+import com.twilio.video.LocalAudioTrack;
+import com.twilio.video.LocalParticipant;
+import com.twilio.video.LocalVideoTrack;
+import com.twilio.video.Participant;
+import com.twilio.video.RNFirstFrameProbe;
+import com.twilio.video.RNRenderEngine;
+import com.twilio.video.Room;
+import com.twilio.video.TwilioException;
+import com.twilio.video.Video;
+import com.twilio.video.VideoFormat;
+import com.twilio.video.VideoTrack;
+
+/**
+ * Starts a call off the UI thread, overlapping the steps that do not depend on each other.
+ *
+ * Once permissions are granted three branches start at the same time: the render engine and its
+ * EGL context are warmed up, the camera is opened and the local tracks are created on the media
+ * worker, unless a local preview already did, and the room is connected without tracks on the
+ * signaling worker. The tracks are published once both the tracks exist and the room is
+ * connected. Only binding the tracks to views runs on the UI thread. Each stage reports its
+ * duration, up to the first remote frame.
+ *
+ * The room is connected from the signaling worker, so the SDK delivers room and participant
+ * events on that worker's looper. Use {@link #onUiThread(Room.Listener)} and
+ * {@link #onUiThread(Participant.Listener)} to handle them on the UI thread.
+ */
+class ConnectPipeline {
+
+    private static final String TAG = "ConnectPipeline";
+
+    static final String STAGE_WARM_UP            = "warmUp";
+    static final String STAGE_CAPTURER           = "capturer";
+    static final String STAGE_LOCAL_TRACKS       = "localTracks";
+    static final String STAGE_BIND               = "bind";
+    static final String STAGE_SIGNALING          = "signaling";
+    static final String STAGE_CONNECTED          = "connected";
+    static final String STAGE_PUBLISH            = "publish";
+    static final String STAGE_FIRST_REMOTE_FRAME = "firstRemoteFrame";
+
+    interface Callbacks {
+        /**
+         * Called on the UI thread with the created capturer and tracks, any of which may be
+         * null. The tracks are published by the pipeline once the room is connected.
+         */
+        void onLocalMediaCreated(CameraCapturer cameraCapturer,
+                                 LocalAudioTrack localAudioTrack,
+                                 LocalVideoTrack localVideoTrack);
+
+        /**
+         * Called on the UI thread once Video.connect returned. The connection result follows
+         * through the room listener.
+         */
+        void onRoomCreated(Room room);
+
+        /**
+         * Called on the UI thread after each stage, with the time since the pipeline started.
+         */
+        void onStageCompleted(String stage, long durationMs, long elapsedMs);
+    }
+
+    interface VideoTrackCallback {
+        /**
+         * Called on the UI thread with the recreated track, the previous one when no format
+         * within the profile is known yet, or null when creating it failed.
+         */
+        void onVideoTrackRecreated(@Nullable LocalVideoTrack localVideoTrack);
+    }
+
+    /*
+     * State of one call start. Only touched on the UI thread once the branches handed over.
+     */
+    private class Attempt {
+        final Callbacks       callbacks;
+        final long            startTime = SystemClock.elapsedRealtime();
+        LocalAudioTrack       localAudioTrack;
+        LocalVideoTrack       localVideoTrack;
+        boolean               localMediaCreated;
+        Room                  room;
+        long                  signalingTime;
+        boolean               connected;
+        boolean               failed;
+        boolean               published;
+        RNFirstFrameProbe     firstFrameProbe;
+
+        Attempt(Callbacks callbacks) {
+            this.callbacks = callbacks;
+        }
+    }
+
+    private final Context context;
+    private final Handler uiThreadHandler = new Handler(Looper.getMainLooper());
+    private HandlerThread mediaThread;
+    private Handler       mediaHandler;
+    private HandlerThread signalingThread;
+    private Handler       signalingHandler;
+    private Attempt       current;
+    private boolean       localMediaPending;
+    private int           mediaGeneration;
+    private boolean       warmingUp;
+    private volatile CaptureProfile captureProfile;
+    private RNRenderEngine renderEngine;
+
+    ConnectPipeline(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Starts a call. Must be called on the UI thread once permissions are granted. Local tracks
+     * that already exist, from a local preview, are published instead of creating new ones.
+     */
+    void start(final String accessToken,
+               @Nullable LocalAudioTrack localAudioTrack,
+               @Nullable LocalVideoTrack localVideoTrack,
+               CameraCapturer.Listener cameraListener,
+               Room.Listener roomListener,
+               Callbacks callbacks) {
+        cancelAttempt();
+        final Attempt attempt = new Attempt(callbacks);
+        current = attempt;
+
+        warmUp(attempt);
+
+        if (localAudioTrack != null || localVideoTrack != null) {
+            attempt.localAudioTrack = localAudioTrack;
+            attempt.localVideoTrack = localVideoTrack;
+            attempt.localMediaCreated = true;
+        } else if (!localMediaPending) {
+            createLocalMedia(cameraListener, callbacks);
+        }
+        // Otherwise a local preview is still starting, its media joins this attempt when ready.
+
+        final Room.Listener joinListener = onUiThread(joinListener(attempt, roomListener));
+        signaling().post(new Runnable() {
+            @Override
+            public void run() {
+                long stageStart = SystemClock.elapsedRealtime();
+                ConnectOptions connectOptions = new ConnectOptions.Builder(accessToken).build();
+                final Room room = Video.connect(context, connectOptions, joinListener);
+                final long signalingTime = reportStage(attempt, STAGE_SIGNALING, stageStart);
+
+                uiThreadHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (attempt != current) {
+                            room.disconnect();
+                            return;
+                        }
+                        attempt.room = room;
+                        attempt.signalingTime = signalingTime;
+                        attempt.callbacks.onRoomCreated(room);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Budget for local video created from now on, null for the SDK defaults.
+     */
+    void setCaptureProfile(@Nullable CaptureProfile captureProfile) {
+        this.captureProfile = captureProfile;
+    }
+
+    /**
+     * Opens the camera and creates the local tracks on the media worker, e.g. to show a local
+     * preview before connecting. A call started meanwhile publishes them once they are ready.
+     * Must be called on the UI thread.
+     */
+    void createLocalMedia(final CameraCapturer.Listener cameraListener, final Callbacks callbacks) {
+        if (localMediaPending) {
+            return;
+        }
+        localMediaPending = true;
+        final int generation = ++mediaGeneration;
+        final long startTime = SystemClock.elapsedRealtime();
+        media().post(new Runnable() {
+            @Override
+            public void run() {
+                long stageStart = SystemClock.elapsedRealtime();
+                final CameraCapturer cameraCapturer = new CameraCapturer(
+                        context, CameraCapturer.CameraSource.FRONT_CAMERA, cameraListener);
+                // Usually read from disk, see CameraFormatCache. A stored capture format means the
+                // camera worked before, its formats are not needed then.
+                CameraFormatCache cameraFormatCache = CameraFormatCache.instance(context);
+                CaptureProfile captureProfile = ConnectPipeline.this.captureProfile;
+                final boolean hasCameraFormats =
+                        (captureProfile != null && cameraFormatCache.getCaptureFormat(cameraCapturer, captureProfile) != null)
+                                || !cameraFormatCache.getSupportedFormats(cameraCapturer).isEmpty();
+                stageStart = reportMediaStage(generation, callbacks, STAGE_CAPTURER, stageStart, startTime);
+
+                final LocalAudioTrack localAudioTrack = LocalAudioTrack.create(context, true);
+                final LocalVideoTrack localVideoTrack = hasCameraFormats
+                        ? createVideoTrack(context, cameraCapturer, captureProfile, true)
+                        : null;
+                reportMediaStage(generation, callbacks, STAGE_LOCAL_TRACKS, stageStart, startTime);
+
+                uiThreadHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mediaGeneration) {
+                            release(localAudioTrack, localVideoTrack);
+                            return;
+                        }
+                        localMediaPending = false;
+                        long bindStart = SystemClock.elapsedRealtime();
+                        callbacks.onLocalMediaCreated(cameraCapturer, localAudioTrack, localVideoTrack);
+                        reportMediaStage(generation, callbacks, STAGE_BIND, bindStart, startTime);
+
+                        Attempt attempt = current;
+                        if (attempt != null && !attempt.localMediaCreated) {
+                            attempt.localAudioTrack = localAudioTrack;
+                            attempt.localVideoTrack = localVideoTrack;
+                            attempt.localMediaCreated = true;
+                            publish(attempt);
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Replaces a local video track, detached from its previews and its room, by one created with
+     * the given profile on the media worker, since releasing and opening the camera takes
+     * hundreds of ms. The camera is still open until the track is released, so the format comes
+     * from the stored ones: when none is known the track is kept as it is rather than capturing
+     * unconstrained. Dropped, and the new track released, if the local media was cancelled
+     * meanwhile. Must be called on the UI thread.
+     */
+    void recreateVideoTrack(final LocalVideoTrack localVideoTrack,
+                            final CameraCapturer cameraCapturer,
+                            @Nullable final CaptureProfile captureProfile,
+                            final VideoTrackCallback callback) {
+        final int generation = mediaGeneration;
+        final boolean enabled = localVideoTrack.isEnabled();
+        media().post(new Runnable() {
+            @Override
+            public void run() {
+                LocalVideoTrack recreatedTrack;
+                VideoFormat format = captureProfile != null ? storedFormat(cameraCapturer, captureProfile) : null;
+                if (captureProfile != null && format == null) {
+                    Log.w(TAG, "No known camera format for " + captureProfile + ", keeping the video track");
+                    recreatedTrack = localVideoTrack;
+                } else {
+                    localVideoTrack.release();
+                    if (format == null) {
+                        recreatedTrack = LocalVideoTrack.create(context, enabled, cameraCapturer);
+                    } else {
+                        recreatedTrack = LocalVideoTrack.create(context, enabled, cameraCapturer,
+                                                                captureProfile.constraints(format));
+                        if (recreatedTrack != null) {
+                            CameraFormatCache.instance(context).setCaptureFormat(cameraCapturer, captureProfile, format);
+                        }
+                    }
+                }
+
+                final LocalVideoTrack result = recreatedTrack;
+                uiThreadHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mediaGeneration) {
+                            if (result != null) {
+                                result.release();
+                            }
+                            return;
+                        }
+                        callback.onVideoTrackRecreated(result);
+                    }
+                });
+            }
+        });
+    }
+
+    /*
+     * The format the profile used last time, or the best of the stored formats. Never
+     * enumerates, null when neither is known.
+     */
+    @Nullable
+    private VideoFormat storedFormat(CameraCapturer cameraCapturer, CaptureProfile captureProfile) {
+        CameraFormatCache cameraFormatCache = CameraFormatCache.instance(context);
+        VideoFormat format = cameraFormatCache.getCaptureFormat(cameraCapturer, captureProfile);
+        if (format != null) {
+            return format;
+        }
+        return captureProfile.selectFormat(cameraFormatCache.getStoredFormats(cameraCapturer));
+    }
+
+    /**
+     * Whether a call was started and neither connected nor failed yet. Must be called on the UI
+     * thread.
+     */
+    boolean isConnecting() {
+        return current != null && !current.connected && !current.failed;
+    }
+
+    /**
+     * Measures the time to the first frame of the given remote track, if no remote frame was
+     * measured for the current attempt yet. Must be called on the UI thread.
+     */
+    void onRemoteVideoTrack(VideoTrack videoTrack) {
+        final Attempt attempt = current;
+        if (attempt == null || attempt.firstFrameProbe != null) {
+            return;
+        }
+        attempt.firstFrameProbe = RNFirstFrameProbe.attach(videoTrack, new RNFirstFrameProbe.Listener() {
+            @Override
+            public void onFirstFrame(long timeToFirstFrameMs) {
+                if (attempt == current) {
+                    long now = SystemClock.elapsedRealtime();
+                    attempt.callbacks.onStageCompleted(STAGE_FIRST_REMOTE_FRAME, timeToFirstFrameMs,
+                                                       now - attempt.startTime);
+                }
+            }
+        });
+    }
+
+    /**
+     * Abandons the running attempt and local media creation, if any. Media that was not handed
+     * over yet is released, a room connected by the attempt is disconnected. Must be called on
+     * the UI thread.
+     */
+    void cancel() {
+        cancelAttempt();
+        ++mediaGeneration;
+        localMediaPending = false;
+    }
+
+    private void cancelAttempt() {
+        if (current != null && current.firstFrameProbe != null) {
+            current.firstFrameProbe.cancel();
+        }
+        current = null;
+    }
+
+    /**
+     * Cancels, stops the workers once they are idle and lets go of the render engine.
+     */
+    void release() {
+        cancel();
+        if (mediaThread != null) {
+            mediaThread.quitSafely();
+            mediaThread = null;
+            mediaHandler = null;
+        }
+        if (signalingThread != null) {
+            signalingThread.quitSafely();
+            signalingThread = null;
+            signalingHandler = null;
+        }
+        if (renderEngine != null) {
+            renderEngine.release(this);
+            renderEngine = null;
+        }
+    }
+
+    /*
+     * Creates the render engine, its thread and EGL context before the first preview needs them.
+     * The pipeline keeps the engine until it is released, so it survives previews remounting.
+     */
+    private void warmUp(final Attempt attempt) {
+        if (renderEngine != null || warmingUp) {
+            return;
+        }
+        warmingUp = true;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long stageStart = SystemClock.elapsedRealtime();
+                final RNRenderEngine engine = RNRenderEngine.instance(ConnectPipeline.this);
+                reportStage(attempt, STAGE_WARM_UP, stageStart);
+                uiThreadHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        warmingUp = false;
+                        if (mediaThread == null && signalingThread == null) {
+                            // Released meanwhile.
+                            engine.release(ConnectPipeline.this);
+                        } else {
+                            renderEngine = engine;
+                        }
+                    }
+                });
+            }
+        }, TAG + "-warmUp").start();
+    }
+
+    /*
+     * Join point: publishes the local tracks once they exist and the room is connected.
+     */
+    private void publish(Attempt attempt) {
+        if (attempt.published || !attempt.localMediaCreated || !attempt.connected || attempt.room == null) {
+            return;
+        }
+        LocalParticipant localParticipant = attempt.room.getLocalParticipant();
+        if (localParticipant == null) {
+            return;
+        }
+        attempt.published = true;
+        long stageStart = SystemClock.elapsedRealtime();
+        if (attempt.localAudioTrack != null) {
+            localParticipant.addAudioTrack(attempt.localAudioTrack);
+        }
+        if (attempt.localVideoTrack != null) {
+            localParticipant.addVideoTrack(attempt.localVideoTrack);
+        }
+        reportStage(attempt, STAGE_PUBLISH, stageStart);
+    }
+
+    /*
+     * Marks the attempt connected and publishes before the view sees onConnected.
+     */
+    private Room.Listener joinListener(final Attempt attempt, final Room.Listener listener) {
+        return new Room.Listener() {
+            @Override
+            public void onConnected(Room room) {
+                if (attempt == current) {
+                    attempt.room = room;
+                    attempt.connected = true;
+                    long now = SystemClock.elapsedRealtime();
+                    long connectingSince = attempt.signalingTime != 0L ? attempt.signalingTime : attempt.startTime;
+                    attempt.callbacks.onStageCompleted(STAGE_CONNECTED, now - connectingSince,
+                                                       now - attempt.startTime);
+                    publish(attempt);
+                }
+                listener.onConnected(room);
+            }
+
+            @Override
+            public void onConnectFailure(Room room, TwilioException e) {
+                if (attempt == current) {
+                    attempt.failed = true;
+                }
+                listener.onConnectFailure(room, e);
+            }
+
+            @Override
+            public void onDisconnected(Room room, TwilioException e) {
+                listener.onDisconnected(room, e);
+            }
+
+            @Override
+            public void onParticipantConnected(Room room, Participant participant) {
+                listener.onParticipantConnected(room, participant);
+            }
+
+            @Override
+            public void onParticipantDisconnected(Room room, Participant participant) {
+                listener.onParticipantDisconnected(room, participant);
+            }
+
+            @Override
+            public void onRecordingStarted(Room room) {
+                listener.onRecordingStarted(room);
+            }
+
+            @Override
+            public void onRecordingStopped(Room room) {
+                listener.onRecordingStopped(room);
+            }
+        };
+    }
+
+    private Handler media() {
+        if (mediaHandler == null) {
+            mediaThread = new HandlerThread(TAG + "-media");
+            mediaThread.start();
+            mediaHandler = new Handler(mediaThread.getLooper());
+        }
+        return mediaHandler;
+    }
+
+    private Handler signaling() {
+        if (signalingHandler == null) {
+            signalingThread = new HandlerThread(TAG + "-signaling");
+            signalingThread.start();
+            signalingHandler = new Handler(signalingThread.getLooper());
+        }
+        return signalingHandler;
+    }
+
+    /*
+     * Reports a stage that started at stageStart and returns its end time. Callable from any
+     * thread, the callback runs on the UI thread and is dropped if the attempt was abandoned.
+     */
+    private long reportStage(final Attempt attempt, final String stage, long stageStart) {
+        final long now = SystemClock.elapsedRealtime();
+        final long durationMs = now - stageStart;
+        final long elapsedMs = now - attempt.startTime;
+        Log.i(TAG, "Stage " + stage + " took " + durationMs + " ms");
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                if (attempt == current) {
+                    attempt.callbacks.onStageCompleted(stage, durationMs, elapsedMs);
+                }
+            }
+        });
+        return now;
+    }
+
+    /*
+     * Same for the stages of local media creation, dropped if it was cancelled.
+     */
+    private long reportMediaStage(final int generation, final Callbacks callbacks, final String stage,
+                                  long stageStart, long startTime) {
+        final long now = SystemClock.elapsedRealtime();
+        final long durationMs = now - stageStart;
+        final long elapsedMs = now - startTime;
+        Log.i(TAG, "Stage " + stage + " took " + durationMs + " ms");
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == mediaGeneration) {
+                    callbacks.onStageCompleted(stage, durationMs, elapsedMs);
+                }
+            }
+        });
+        return now;
+    }
+
+    private void runOnUiThread(Runnable runnable) {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            runnable.run();
+        } else {
+            uiThreadHandler.post(runnable);
+        }
+    }
+
+    /**
+     * Creates a video track capped to the profile's format, or at the SDK defaults without a
+     * profile. The camera's formats and the format picked come from and go to CameraFormatCache.
+     * Null when the camera reports no format, e.g. while it is still open, rather than capturing
+     * beyond the profile.
+     */
+    static LocalVideoTrack createVideoTrack(Context context,
+                                            CameraCapturer cameraCapturer,
+                                            @Nullable CaptureProfile captureProfile,
+                                            boolean enabled) {
+        if (captureProfile == null) {
+            return LocalVideoTrack.create(context, enabled, cameraCapturer);
+        }
+        CameraFormatCache cameraFormatCache = CameraFormatCache.instance(context);
+        // The format that worked last time skips selecting.
+        VideoFormat storedFormat = cameraFormatCache.getCaptureFormat(cameraCapturer, captureProfile);
+        if (storedFormat != null) {
+            LocalVideoTrack localVideoTrack = LocalVideoTrack.create(context, enabled, cameraCapturer,
+                                                                     captureProfile.constraints(storedFormat));
+            if (localVideoTrack != null) {
+                return localVideoTrack;
+            }
+            Log.w(TAG, "Stored capture format " + storedFormat.dimensions + " failed, selecting again");
+        }
+        VideoFormat format = captureProfile.selectFormat(cameraFormatCache.getSupportedFormats(cameraCapturer));
+        if (format == null) {
+            Log.w(TAG, "No camera format for " + captureProfile);
+            return null;
+        }
+        LocalVideoTrack localVideoTrack = LocalVideoTrack.create(context, enabled, cameraCapturer,
+                                                                 captureProfile.constraints(format));
+        if (localVideoTrack != null) {
+            cameraFormatCache.setCaptureFormat(cameraCapturer, captureProfile, format);
+        }
+        return localVideoTrack;
+    }
+
+    static void release(LocalAudioTrack localAudioTrack, LocalVideoTrack localVideoTrack) {
+        if (localAudioTrack != null) {
+            localAudioTrack.release();
+        }
+        if (localVideoTrack != null) {
+            localVideoTrack.release();
+        }
+    }
+
+    // ===== LISTENERS ON THE UI THREAD ============================================================
+
+    static Room.Listener onUiThread(final Room.Listener listener) {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new Room.Listener() {
+            @Override
+            public void onConnected(final Room room) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onConnected(room);
+                    }
+                });
+            }
+
+            @Override
+            public void onConnectFailure(final Room room, final TwilioException e) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onConnectFailure(room, e);
+                    }
+                });
+            }
+
+            @Override
+            public void onDisconnected(final Room room, final TwilioException e) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onDisconnected(room, e);
+                    }
+                });
+            }
+
+            @Override
+            public void onParticipantConnected(final Room room, final Participant participant) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onParticipantConnected(room, participant);
+                    }
+                });
+            }
+
+            @Override
+            public void onParticipantDisconnected(final Room room, final Participant participant) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onParticipantDisconnected(room, participant);
+                    }
+                });
+            }
+
+            @Override
+            public void onRecordingStarted(final Room room) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onRecordingStarted(room);
+                    }
+                });
+            }
+
+            @Override
+            public void onRecordingStopped(final Room room) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onRecordingStopped(room);
+                    }
+                });
+            }
+        };
+    }
+
+    static Participant.Listener onUiThread(final Participant.Listener listener) {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new Participant.Listener() {
+            @Override
+            public void onAudioTrackAdded(final Participant participant, final AudioTrack audioTrack) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onAudioTrackAdded(participant, audioTrack);
+                    }
+                });
+            }
+
+            @Override
+            public void onAudioTrackRemoved(final Participant participant, final AudioTrack audioTrack) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onAudioTrackRemoved(participant, audioTrack);
+                    }
+                });
+            }
+
+            @Override
+            public void onVideoTrackAdded(final Participant participant, final VideoTrack videoTrack) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onVideoTrackAdded(participant, videoTrack);
+                    }
+                });
+            }
+
+            @Override
+            public void onVideoTrackRemoved(final Participant participant, final VideoTrack videoTrack) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onVideoTrackRemoved(participant, videoTrack);
+                    }
+                });
+            }
+
+            @Override
+            public void onAudioTrackEnabled(final Participant participant, final AudioTrack audioTrack) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onAudioTrackEnabled(participant, audioTrack);
+                    }
+                });
+            }
+
+            @Override
+            public void onAudioTrackDisabled(final Participant participant, final AudioTrack audioTrack) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onAudioTrackDisabled(participant, audioTrack);
+                    }
+                });
+            }
+
+            @Override
+            public void onVideoTrackEnabled(final Participant participant, final VideoTrack videoTrack) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onVideoTrackEnabled(participant, videoTrack);
+                    }
+                });
+            }
+
+            @Override
+            public void onVideoTrackDisabled(final Participant participant, final VideoTrack videoTrack) {
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onVideoTrackDisabled(participant, videoTrack);
+                    }
+                });
+            }
+        };
+    }
+}
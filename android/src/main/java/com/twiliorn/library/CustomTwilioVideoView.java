@@ -6,6 +6,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
 import android.media.AudioManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.Nullable;
 import android.support.annotation.StringDef;
@@ -18,28 +21,27 @@ import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.WritableNativeMap;
 import com.facebook.react.bridge.WritableArray;
 import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
 import com.facebook.react.uimanager.ThemedReactContext;
-import com.facebook.react.uimanager.events.RCTEventEmitter;
-import com.twilio.video.AspectRatio;
+import com.facebook.react.uimanager.UIManagerModule;
+import com.facebook.react.uimanager.events.EventDispatcher;
 import com.twilio.video.AudioTrack;
 import com.twilio.video.CameraCapturer;
-import com.twilio.video.ConnectOptions;
 import com.twilio.video.LocalAudioTrack;
+import com.twilio.video.LocalParticipant;
 import com.twilio.video.LocalVideoTrack;
 import com.twilio.video.Participant;
+import com.twilio.video.RNFirstFrameProbe;
 import com.twilio.video.Room;
 import com.twilio.video.RoomState;
 import com.twilio.video.TwilioException;
-import com.twilio.video.Video;
-import com.twilio.video.VideoConstraints;
 import com.twilio.video.VideoTrack;
-import com.twilio.video.VideoView;
 import com.twiliorn.library.permissions.PermissionsManager;
 import com.twiliorn.library.permissions.PermissionsResult;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 
 import rx.functions.Action1;
@@ -48,10 +50,18 @@ import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_AUDIO_CHANGED
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_SWITCHED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_FAILURE;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_STAGE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DICONNECTED;
-import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_CONNECTED;
-import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_DISCONNECTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_VIDEO_TRACK;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_VIDEO_TRACK;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_QUALITY_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTING;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RENDERED_TRACKS_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_ROOM_SWITCHED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_ROOM_SWITCH_FAILED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_RESUMED;
 
 
 public class CustomTwilioVideoView extends View implements LifecycleEventListener {
@@ -66,7 +76,19 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             Events.ON_CONNECT_FAILURE,
             Events.ON_DICONNECTED,
             Events.ON_PARTICIPANT_CONNECTED,
-            Events.ON_PARTICIPANT_DISCONNECTED})
+            Events.ON_PARTICIPANT_DISCONNECTED,
+            Events.ON_VIDEO_RESUMED,
+            Events.ON_PARTICIPANT_ADDED_VIDEO_TRACK,
+            Events.ON_PARTICIPANT_REMOVED_VIDEO_TRACK,
+            Events.ON_RENDERED_TRACKS_CHANGED,
+            Events.ON_CONNECT_STAGE,
+            Events.ON_ROOM_SWITCHED,
+            Events.ON_ROOM_SWITCH_FAILED,
+            Events.ON_RECONNECTING,
+            Events.ON_RECONNECTED,
+            Events.ON_QUALITY_CHANGED,
+            Events.ON_PARTICIPANTS_CHANGED,
+            Events.ON_STATS})
     public @interface Events {
         String ON_CAMERA_SWITCHED          = "onCameraSwitched";
         String ON_VIDEO_CHANGED            = "onVideoChanged";
@@ -76,11 +98,23 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         String ON_DICONNECTED              = "onRoomDidDisconnect";
         String ON_PARTICIPANT_CONNECTED    = "onRoomParticipantDidConnect";
         String ON_PARTICIPANT_DISCONNECTED = "onRoomParticipantDidDisconnect";
+        String ON_VIDEO_RESUMED            = "onVideoResumed";
+        String ON_PARTICIPANT_ADDED_VIDEO_TRACK   = "onParticipantAddedVideoTrack";
+        String ON_PARTICIPANT_REMOVED_VIDEO_TRACK = "onParticipantRemovedVideoTrack";
+        String ON_RENDERED_TRACKS_CHANGED         = "onRenderedTracksChanged";
+        String ON_CONNECT_STAGE                   = "onConnectStage";
+        String ON_ROOM_SWITCHED                   = "onRoomSwitched";
+        String ON_ROOM_SWITCH_FAILED              = "onRoomSwitchFailed";
+        String ON_RECONNECTING                    = "onRoomReconnecting";
+        String ON_RECONNECTED                     = "onRoomReconnected";
+        String ON_QUALITY_CHANGED                 = "onCaptureQualityChanged";
+        String ON_PARTICIPANTS_CHANGED            = "onParticipantsChanged";
+        String ON_STATS                           = "onStats";
 
     }
 
     private final ThemedReactContext themedReactContext;
-    private final RCTEventEmitter    eventEmitter;
+    private final EventDispatcher    eventDispatcher;
     private final PermissionsManager permissionsManager;
 
     /*
@@ -88,14 +122,67 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
      */
     private Room room;
 
+    /*
+     * While switching rooms, the room being connected and its token. The current room and its
+     * token stay in use until it is connected.
+     */
+    private boolean switchingRoom;
+    private long    roomSwitchStartTime;
+    private Room    pendingRoom;
+    private String  pendingAccessToken;
+
+    /*
+     * Token of the current room, to connect it again after a network error.
+     */
+    private String                accessToken;
+    private final RoomReconnector roomReconnector;
+
     /*
      * A VideoView receives frames from a local or remote video track and renders them
-     * to an associated view.
+     * to an associated view. The previews of this view's session show the local track, and
+     * the session's registry routes remote tracks to them.
+     */
+    private String              sessionId;
+    private CallSession         session;
+    private RemoteVideoRegistry remoteVideoRegistry;
+    private LocalVideoTrack     localVideoTrack;
+
+    /*
+     * Render policy props, reapplied when the view moves to another session.
+     */
+    private int          maxRenderedTracks;
+    private String       renderPriority;
+    private List<String> pinnedParticipants = new ArrayList<>();
+    private String       dominantSpeaker;
+
+    /*
+     * Participant joins and leaves, batched into onParticipantsChanged in large rooms.
+     */
+    private final ParticipantEventBatcher participantEvents = new ParticipantEventBatcher(
+            new ParticipantEventBatcher.Sink() {
+                @Override
+                public void dispatch(String eventName, WritableMap data) {
+                    eventDispatcher.dispatchEvent(TwilioEvent.of(getId(), eventName, data));
+                }
+            });
+
+    private final ConnectPipeline   connectPipeline;
+    private final LocalMediaPool    localMediaPool;
+    private long                    localMediaIdleTimeoutMs;
+
+    /*
+     * The captureProfile budget, and what is applied: the budget, or the quality controller's
+     * level within it.
      */
-    private static VideoView primaryVideoView;
-    private static VideoView thumbnailVideoView;
-    private static VideoTrack  participantVideoTrack;
-    private static LocalVideoTrack localVideoTrack;
+    private CaptureProfile          captureProfile;
+    private CaptureProfile          effectiveCaptureProfile;
+    private boolean                 adaptiveQuality;
+    private final QualityController qualityController;
+
+    /*
+     * Polls the room's stats every statsInterval ms while connected, see StatsCollector.
+     */
+    private final StatsCollector    statsCollector;
 
     private CameraCapturer  cameraCapturer;
     private LocalAudioTrack localAudioTrack;
@@ -106,15 +193,33 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
     private IntentFilter intentFilter;
     private BecomingNoisyReceiver myNoisyAudioStreamReceiver;
 
+    /*
+     * Background mode: while the host is paused local capture is stopped and no renderer is
+     * attached to any video track. Audio keeps flowing.
+     */
+    private boolean           inBackground;
+    private boolean           localVideoExisted;
+    private boolean           localVideoWasPublished;
+    private boolean           localVideoWasEnabled;
+    private RNFirstFrameProbe localFirstFrameProbe;
+    private RNFirstFrameProbe remoteFirstFrameProbe;
+
     public CustomTwilioVideoView(ThemedReactContext context) {
         super(context);
         this.themedReactContext = context;
-        this.eventEmitter = themedReactContext.getJSModule(RCTEventEmitter.class);
+        this.eventDispatcher = themedReactContext.getNativeModule(UIManagerModule.class).getEventDispatcher();
         this.permissionsManager = PermissionsManager.get(themedReactContext);
+        this.connectPipeline = new ConnectPipeline(context);
+        this.localMediaPool = LocalMediaPool.instance(context);
+        this.roomReconnector = new RoomReconnector(reconnectConnector(), uiThreadScheduler(), reconnectListener());
+        this.qualityController = new QualityController(context, qualityListener());
+        this.statsCollector = new StatsCollector(statsListener());
 
         // add lifecycle for onResume and on onPause
         themedReactContext.addLifecycleEventListener(this);
 
+        bindSession();
+
         /*
          * Enable changing the volume using the up/down keys during a conversation
          */
@@ -132,45 +237,102 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
     // ===== SETUP =================================================================================
 
+    /*
+     * Creates the local media and connects in parallel, off the UI thread, see ConnectPipeline.
+     * Tracks already running for a local preview are published as they are.
+     */
     private void createLocalMedia(final String accessToken) {
-        // Share your microphone
-        localAudioTrack = LocalAudioTrack.create(getContext(), true);
         Log.i("CustomTwilioVideoView", "Create local media");
+        this.accessToken = accessToken;
+        roomReconnector.stop();
+        if (adaptiveQuality) {
+            // Every call starts at the top of the ladder.
+            qualityController.reset();
+            applyCaptureProfile();
+        }
+        setAudioFocus(true);
+        takePooledLocalMedia();
+        connectPipeline.start(accessToken, localAudioTrack, localVideoTrack, cameraListener(), roomListener(),
+                              pipelineCallbacks());
+    }
 
-        // Share your camera
-        cameraCapturer = new CameraCapturer(
-            getContext(),
-            CameraCapturer.CameraSource.FRONT_CAMERA,
-            new CameraCapturer.Listener() {
-                @Override
-                public void onFirstFrameAvailable() {
-                    Log.i("CustomTwilioVideoView", "Got a local camera track");
+    private ConnectPipeline.Callbacks pipelineCallbacks() {
+        return new ConnectPipeline.Callbacks() {
+            @Override
+            public void onLocalMediaCreated(CameraCapturer capturer,
+                                            LocalAudioTrack audioTrack,
+                                            LocalVideoTrack videoTrack) {
+                useLocalMedia(capturer, audioTrack, videoTrack);
+            }
+
+            @Override
+            public void onRoomCreated(Room room) {
+                if (switchingRoom) {
+                    pendingRoom = room;
+                } else {
+                    CustomTwilioVideoView.this.room = room;
                 }
+            }
 
-                @Override
-                public void onCameraSwitched() {
+            @Override
+            public void onStageCompleted(String stage, long durationMs, long elapsedMs) {
+                pushConnectStage(stage, durationMs, elapsedMs);
+            }
+        };
+    }
 
-                }
+    private void useLocalMedia(CameraCapturer capturer, LocalAudioTrack audioTrack, LocalVideoTrack videoTrack) {
+        cameraCapturer = capturer;
+        // Share your microphone
+        localAudioTrack = audioTrack;
+        // Share your camera
+        localVideoTrack = videoTrack;
+        if (localVideoTrack != null) {
+            session.setLocalVideoTrack(localVideoTrack);
+        }
+        publishLocalTracks();
+    }
 
-                @Override
-                public void onError(int i) {
-                    Log.i("CustomTwilioVideoView", "Error getting camera");
-                }
+    /*
+     * Keeps the local tracks in the room state store up to date for synchronous reads from JS.
+     */
+    private void publishLocalTracks() {
+        session.getRoomStateStore().localTracksChanged(localAudioTrack, localVideoTrack, isBackCamera());
+    }
+
+    /*
+     * Static so that pooled capturers do not keep the view that created them.
+     */
+    private static CameraCapturer.Listener cameraListener() {
+        return new CameraCapturer.Listener() {
+            @Override
+            public void onFirstFrameAvailable() {
+                Log.i("CustomTwilioVideoView", "Got a local camera track");
             }
-        );
 
-        if (cameraCapturer.getSupportedFormats().size() > 0) {
-            localVideoTrack = LocalVideoTrack.create(getContext(), true, cameraCapturer);
-            if (thumbnailVideoView != null && localVideoTrack != null) {
-                localVideoTrack.addRenderer(thumbnailVideoView);
+            @Override
+            public void onCameraSwitched() {
+
             }
-        }
-        connectToRoom(accessToken);
+
+            @Override
+            public void onError(int i) {
+                Log.i("CustomTwilioVideoView", "Error getting camera");
+            }
+        };
+    }
+
+    private void pushConnectStage(String stage, long durationMs, long elapsedMs) {
+        WritableMap event = new WritableNativeMap();
+        event.putString("stage", stage);
+        event.putDouble("duration", durationMs);
+        event.putDouble("elapsed", elapsedMs);
+        pushEvent(CustomTwilioVideoView.this, ON_CONNECT_STAGE, event);
     }
 
     // ===== PERMISSIONS ===========================================================================
 
-    private void requestPermissionForCameraAndMicrophone(final String accessToken) {
+    private void requestPermissionForCameraAndMicrophone(final Runnable onGranted) {
         final Activity activity = themedReactContext.getCurrentActivity();
         if (activity != null) {
             if (permissionsManager.neverAskForCamera(activity) || permissionsManager.neverAskForMicrophone(activity)) {
@@ -181,7 +343,7 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
                                       @Override
                                       public void call(PermissionsResult permissionsResult) {
                                           if (permissionsResult.isGranted()) {
-                                              createLocalMedia(accessToken);
+                                              onGranted.run();
                                           } else {
                                               showPermissionsNeededSnackbar(activity);
                                           }
@@ -222,11 +384,106 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             themedReactContext.getCurrentActivity()
                               .setVolumeControlStream(AudioManager.STREAM_VOICE_CALL);
         }
+        exitBackgroundMode();
     }
 
     @Override
     public void onHostPause() {
         Log.i("CustomTwilioVideoView", "Host pause");
+        enterBackgroundMode();
+    }
+
+    // ===== BACKGROUND MODE =======================================================================
+
+    private void enterBackgroundMode() {
+        if (inBackground) {
+            return;
+        }
+        inBackground = true;
+        cancelFirstFrameProbes();
+        qualityController.stop();
+
+        /*
+         * Nobody can see the video, stop uploading frames to the surfaces.
+         */
+        remoteVideoRegistry.setRenderingEnabled(false);
+
+        /*
+         * Release the camera so capture and encoding stop, and other apps can use it. The
+         * capturer is kept to recreate the track on resume, also a muted one so it can be
+         * enabled again.
+         */
+        localVideoExisted = localVideoTrack != null;
+        localVideoWasPublished = false;
+        if (localVideoTrack != null) {
+            localVideoWasEnabled = localVideoTrack.isEnabled();
+            session.setLocalVideoTrack(null);
+            LocalParticipant localParticipant = room != null ? room.getLocalParticipant() : null;
+            if (localParticipant != null) {
+                localVideoWasPublished = localParticipant.removeVideoTrack(localVideoTrack);
+            }
+            localVideoTrack.release();
+            localVideoTrack = null;
+        } else {
+            localVideoWasEnabled = false;
+        }
+        publishLocalTracks();
+    }
+
+    private void exitBackgroundMode() {
+        if (!inBackground) {
+            return;
+        }
+        inBackground = false;
+        updateQualityController();
+
+        if (localVideoExisted && cameraCapturer != null) {
+            localVideoTrack = ConnectPipeline.createVideoTrack(getContext(), cameraCapturer,
+                                                               effectiveCaptureProfile, localVideoWasEnabled);
+            if (localVideoTrack != null) {
+                if (localVideoWasEnabled) {
+                    // A muted track renders no frame to wait for.
+                    localFirstFrameProbe = RNFirstFrameProbe.attach(localVideoTrack, firstFrameListener("local"));
+                }
+                session.setLocalVideoTrack(localVideoTrack);
+                LocalParticipant localParticipant = room != null ? room.getLocalParticipant() : null;
+                if (localVideoWasPublished && localParticipant != null) {
+                    localParticipant.addVideoTrack(localVideoTrack);
+                }
+            }
+            localVideoExisted = false;
+            publishLocalTracks();
+        }
+
+        VideoTrack primaryVideoTrack = remoteVideoRegistry.getPrimaryVideoTrack();
+        if (primaryVideoTrack != null) {
+            remoteFirstFrameProbe = RNFirstFrameProbe.attach(primaryVideoTrack, firstFrameListener("remote"));
+        }
+        remoteVideoRegistry.setRenderingEnabled(true);
+    }
+
+    private RNFirstFrameProbe.Listener firstFrameListener(final String track) {
+        return new RNFirstFrameProbe.Listener() {
+            @Override
+            public void onFirstFrame(long timeToFirstFrameMs) {
+                Log.i(TAG, "First " + track + " frame " + timeToFirstFrameMs + " ms after resume");
+                WritableMap event = new WritableNativeMap();
+                event.putString("track", track);
+                event.putDouble("timeToFirstFrame", timeToFirstFrameMs);
+                pushEvent(CustomTwilioVideoView.this, ON_VIDEO_RESUMED, event);
+            }
+        };
+    }
+
+    private void cancelFirstFrameProbes() {
+        if (localFirstFrameProbe != null) {
+            localFirstFrameProbe.cancel();
+            localFirstFrameProbe = null;
+        }
+        if (remoteFirstFrameProbe != null) {
+            remoteFirstFrameProbe.cancel();
+            remoteFirstFrameProbe = null;
+        }
     }
 
     @Override
@@ -235,15 +492,20 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
          * Always disconnect from the room before leaving the Activity to
          * ensure any memory allocated to the Room resource is freed.
          */
+        roomReconnector.stop();
         if (room != null && room.getState() != RoomState.DISCONNECTED) {
             room.disconnect();
             disconnectedFromOnDestroy = true;
         }
+        connectPipeline.cancel();
+        cancelRoomSwitch();
 
         /*
          * Release the local media ensuring any memory allocated to audio or video is freed.
          */
+        cancelFirstFrameProbes();
         if (localVideoTrack != null) {
+            session.setLocalVideoTrack(null);
             localVideoTrack.release();
             localVideoTrack = null;
         }
@@ -251,36 +513,251 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
             localAudioTrack.release();
             localAudioTrack = null;
         }
+        publishLocalTracks();
+        localMediaPool.clear();
     }
 
     // ====== CONNECTING ===========================================================================
 
-    public void connectToRoomWrapper(String accessToken) {
-        /*
-         * Check camera and microphone permissions. Needed in Android M.
-         */
+    public void connectToRoomWrapper(final String accessToken) {
         Log.i("CustomTwilioVideoView", "Starting connect flow");
+        withPermissions(new Runnable() {
+            @Override
+            public void run() {
+                createLocalMedia(accessToken);
+            }
+        });
+    }
+
+    /*
+     * Check camera and microphone permissions. Needed in Android M.
+     */
+    private void withPermissions(Runnable onGranted) {
         if (!permissionsManager.isCameraGranted() || !permissionsManager.isMicrophoneGranted()) {
-            requestPermissionForCameraAndMicrophone(accessToken);
+            requestPermissionForCameraAndMicrophone(onGranted);
         } else {
-            createLocalMedia(accessToken);
+            onGranted.run();
         }
     }
 
-    public void connectToRoom(String accessToken) {
-        /*
-         * Create a VideoClient allowing you to connect to a Room
-         */
-        setAudioFocus(true);
-        ConnectOptions.Builder connectOptionsBuilder = new ConnectOptions.Builder(accessToken);
+    // ===== LOCAL PREVIEW =========================================================================
 
-        if (localAudioTrack != null) {
-            connectOptionsBuilder.audioTracks(Arrays.asList(localAudioTrack));
+    /*
+     * Opens the camera and shows it in the local previews before connecting, e.g. in a lobby.
+     * connectToRoom then publishes the running tracks, keeping the camera start off its path.
+     */
+    public void startLocalPreview() {
+        Log.i("CustomTwilioVideoView", "Starting local preview");
+        withPermissions(new Runnable() {
+            @Override
+            public void run() {
+                takePooledLocalMedia();
+                if (localAudioTrack == null && localVideoTrack == null) {
+                    connectPipeline.createLocalMedia(cameraListener(), pipelineCallbacks());
+                }
+            }
+        });
+    }
+
+    /*
+     * Releases the media of a local preview. Ignored during a call, use disconnect instead.
+     */
+    public void stopLocalPreview() {
+        if (isCallInProgress()) {
+            return;
+        }
+        connectPipeline.cancel();
+        cancelFirstFrameProbes();
+        poolLocalMedia();
+    }
+
+    /*
+     * From connectToRoom until disconnected, including while connecting, switching rooms or
+     * waiting to reconnect.
+     */
+    private boolean isCallInProgress() {
+        return connectPipeline.isConnecting()
+                || roomReconnector.isReconnecting()
+                || switchingRoom
+                || pendingRoom != null
+                || (room != null && room.getState() != RoomState.DISCONNECTED);
+    }
+
+    // ===== CAPTURE PROFILE =======================================================================
+
+    /*
+     * Caps local video to the best camera format within the budget, e.g. "720p30" or
+     * "batterySaver". A running track is recreated at the new format.
+     */
+    public void setCaptureProfile(@Nullable String budget) {
+        captureProfile = CaptureProfile.parse(budget);
+        applyCaptureProfile();
+    }
+
+    /*
+     * Lets QualityController move capture along its ladder, within the captureProfile budget.
+     */
+    public void setAdaptiveQuality(boolean adaptiveQuality) {
+        if (this.adaptiveQuality == adaptiveQuality) {
+            return;
+        }
+        this.adaptiveQuality = adaptiveQuality;
+        if (adaptiveQuality) {
+            qualityController.reset();
+        }
+        updateQualityController();
+        applyCaptureProfile();
+    }
+
+    /*
+     * The controller only samples during a call in the foreground, load outside a call says
+     * nothing about what the call can afford.
+     */
+    private void updateQualityController() {
+        if (adaptiveQuality && !inBackground && getConnectedRoom() != null) {
+            qualityController.start();
+        } else {
+            qualityController.stop();
         }
+    }
+
+    private void applyCaptureProfile() {
+        CaptureProfile profile = adaptiveQuality
+                ? CaptureProfile.capped(captureProfile, qualityController.getProfile())
+                : captureProfile;
+        if (profile == null ? effectiveCaptureProfile == null : profile.equals(effectiveCaptureProfile)) {
+            return;
+        }
+        effectiveCaptureProfile = profile;
+        connectPipeline.setCaptureProfile(profile);
+        recreateLocalVideoTrack();
+    }
+
+    private QualityController.Listener qualityListener() {
+        return new QualityController.Listener() {
+            @Override
+            public void onQualityChanged(CaptureProfile profile, int level, String reason,
+                                         double cpu, double dropRatio, float temperature) {
+                applyCaptureProfile();
+
+                WritableMap event = new WritableNativeMap();
+                event.putString("profile", effectiveCaptureProfile.toString());
+                event.putInt("level", level);
+                event.putString("reason", reason);
+                event.putDouble("cpu", cpu);
+                event.putDouble("dropRatio", dropRatio);
+                event.putDouble("temperature", temperature);
+                pushStateEvent(CustomTwilioVideoView.this, ON_QUALITY_CHANGED, event);
+            }
+        };
+    }
+
+    /*
+     * Replaces the local video track by one created with the current capture profile, keeping
+     * its enabled state, its previews and its publication. The camera is reopened on the
+     * pipeline's media worker, the view has no local video track meanwhile. A profile applied
+     * meanwhile recreates it once more.
+     */
+    private void recreateLocalVideoTrack() {
+        if (localVideoTrack == null || cameraCapturer == null || inBackground) {
+            return;
+        }
+        CaptureProfile profile = effectiveCaptureProfile;
+        session.setLocalVideoTrack(null);
+        LocalParticipant localParticipant = room != null ? room.getLocalParticipant() : null;
+        boolean published = localParticipant != null && localParticipant.removeVideoTrack(localVideoTrack);
+        boolean enabled = localVideoTrack.isEnabled();
+        LocalVideoTrack previousTrack = localVideoTrack;
+        localVideoTrack = null;
+        publishLocalTracks();
+
+        connectPipeline.recreateVideoTrack(previousTrack, cameraCapturer, profile,
+                                           recreatedTrackCallback(profile, enabled, published));
+    }
+
+    private ConnectPipeline.VideoTrackCallback recreatedTrackCallback(@Nullable final CaptureProfile profile,
+                                                                      final boolean enabled,
+                                                                      final boolean published) {
+        return new ConnectPipeline.VideoTrackCallback() {
+            @Override
+            public void onVideoTrackRecreated(@Nullable LocalVideoTrack videoTrack) {
+                if (inBackground) {
+                    // Released like enterBackgroundMode would have, recreated on resume.
+                    localVideoExisted = true;
+                    localVideoWasEnabled = enabled;
+                    localVideoWasPublished = published;
+                    if (videoTrack != null) {
+                        videoTrack.release();
+                    }
+                    return;
+                }
+                localVideoTrack = videoTrack;
+                if (localVideoTrack != null) {
+                    session.setLocalVideoTrack(localVideoTrack);
+                    // Also published when a call started meanwhile, it got no video track to publish.
+                    LocalParticipant localParticipant = room != null ? room.getLocalParticipant() : null;
+                    if (localParticipant != null) {
+                        localParticipant.addVideoTrack(localVideoTrack);
+                    }
+                }
+                publishLocalTracks();
+                if (profile == null ? effectiveCaptureProfile != null : !profile.equals(effectiveCaptureProfile)) {
+                    recreateLocalVideoTrack();
+                }
+            }
+        };
+    }
+
+    // ===== LOCAL MEDIA POOL ======================================================================
+
+    /*
+     * How long the local media stays alive after a call or preview ends, in ms, for the next
+     * one to reuse. 0 releases it right away. The camera stays open meanwhile.
+     */
+    public void setLocalMediaIdleTimeout(int idleTimeoutMs) {
+        this.localMediaIdleTimeoutMs = idleTimeoutMs;
+        if (idleTimeoutMs <= 0) {
+            localMediaPool.clear();
+        }
+    }
+
+    private void takePooledLocalMedia() {
+        if (localAudioTrack != null || localVideoTrack != null) {
+            return;
+        }
+        LocalMediaPool.Media media = localMediaPool.take();
+        if (media == null) {
+            return;
+        }
+        Log.i("CustomTwilioVideoView", "Reusing pooled local media");
+        // Muting is per call.
+        if (media.localAudioTrack != null) {
+            media.localAudioTrack.enable(true);
+        }
+        if (media.localVideoTrack != null) {
+            media.localVideoTrack.enable(true);
+        }
+        useLocalMedia(media.cameraCapturer, media.localAudioTrack, media.localVideoTrack);
+        if (cameraCapturer != null) {
+            session.setLocalMirror(cameraCapturer.getCameraSource() == CameraCapturer.CameraSource.FRONT_CAMERA);
+        }
+    }
+
+    /*
+     * Detaches the local media from the view and hands it to the pool. In background mode the
+     * video track is gone and the media is released instead, a call reusing it would lack video.
+     */
+    private void poolLocalMedia() {
         if (localVideoTrack != null) {
-            connectOptionsBuilder.videoTracks(Arrays.asList(localVideoTrack));
+            session.setLocalVideoTrack(null);
+            localMediaPool.put(cameraCapturer, localAudioTrack, localVideoTrack, localMediaIdleTimeoutMs);
+        } else if (localAudioTrack != null) {
+            localAudioTrack.release();
         }
-        room = Video.connect(getContext(), connectOptionsBuilder.build(), roomListener());
+        cameraCapturer = null;
+        localAudioTrack = null;
+        localVideoTrack = null;
+        publishLocalTracks();
     }
 
     private void setAudioFocus(boolean focus) {
@@ -315,61 +792,358 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         }
     }
 
+    // ====== SWITCHING ROOMS ======================================================================
+
+    /*
+     * Moves the call to another room without stopping audio or the local preview: the new room
+     * is connected with the running local tracks, the remote previews move over once it is
+     * connected, and only then the current room is disconnected.
+     */
+    public void switchRoom(String accessToken) {
+        if (roomReconnector.isReconnecting()) {
+            // The current room is gone already, the new one simply replaces it.
+            roomReconnector.stop();
+            remoteVideoRegistry.clear();
+            this.accessToken = accessToken;
+        } else if (room == null || room.getState() == RoomState.DISCONNECTED) {
+            connectToRoomWrapper(accessToken);
+            return;
+        } else {
+            cancelRoomSwitch();
+            switchingRoom = true;
+            roomSwitchStartTime = SystemClock.elapsedRealtime();
+            pendingAccessToken = accessToken;
+        }
+        Log.i("CustomTwilioVideoView", "Switching room");
+        connectPipeline.start(accessToken, localAudioTrack, localVideoTrack, cameraListener(), roomListener(),
+                              pipelineCallbacks());
+    }
+
+    private void cancelRoomSwitch() {
+        if (pendingRoom != null) {
+            pendingRoom.disconnect();
+            pendingRoom = null;
+        }
+        pendingAccessToken = null;
+        switchingRoom = false;
+    }
+
+    /*
+     * The pending room connected: it becomes the current room and the previous one is returned
+     * for the caller to disconnect once the new room's participants are bound.
+     */
+    private Room completeRoomSwitch(Room connectedRoom) {
+        Room previousRoom = room;
+        for (Participant participant : previousRoom.getParticipants()) {
+            participant.setListener(null);
+        }
+        remoteVideoRegistry.clear();
+        room = connectedRoom;
+        accessToken = pendingAccessToken;
+        pendingRoom = null;
+        pendingAccessToken = null;
+        switchingRoom = false;
+        return previousRoom;
+    }
+
+    // ====== RECONNECTING =========================================================================
+
+    /*
+     * Connects the dropped room again with the same token. The local tracks and the previews
+     * stay bound meanwhile, so audio focus and the local preview are not interrupted.
+     */
+    private RoomReconnector.Connector reconnectConnector() {
+        return new RoomReconnector.Connector() {
+            @Override
+            public void connect() {
+                Log.i("CustomTwilioVideoView", "Reconnecting");
+                connectPipeline.start(accessToken, localAudioTrack, localVideoTrack, cameraListener(), roomListener(),
+                                      pipelineCallbacks());
+            }
+        };
+    }
+
+    private RoomReconnector.Listener reconnectListener() {
+        return new RoomReconnector.Listener() {
+            @Override
+            public void onReconnecting(int attempt, long delayMs, int errorCode) {
+                WritableMap event = new WritableNativeMap();
+                event.putInt("attempt", attempt);
+                event.putDouble("delay", delayMs);
+                event.putInt("code", errorCode);
+                pushStateEvent(CustomTwilioVideoView.this, ON_RECONNECTING, event);
+            }
+
+            @Override
+            public void onReconnected(int attempts, long durationMs) {
+                Log.i(TAG, "Reconnected after " + attempts + " attempts, " + durationMs + " ms");
+                WritableMap event = new WritableNativeMap();
+                event.putInt("attempts", attempts);
+                event.putDouble("duration", durationMs);
+                pushEvent(CustomTwilioVideoView.this, ON_RECONNECTED, event);
+            }
+
+            @Override
+            public void onReconnectFailed(int attempts, long durationMs, int errorCode) {
+                Log.i(TAG, "Reconnect failed after " + attempts + " attempts, " + durationMs + " ms, code " + errorCode);
+            }
+        };
+    }
+
+    private static RoomReconnector.Scheduler uiThreadScheduler() {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        return new RoomReconnector.Scheduler() {
+            @Override
+            public long now() {
+                return SystemClock.elapsedRealtime();
+            }
+
+            @Override
+            public void postDelayed(Runnable runnable, long delayMs) {
+                handler.postDelayed(runnable, delayMs);
+            }
+
+            @Override
+            public void removeCallbacks(Runnable runnable) {
+                handler.removeCallbacks(runnable);
+            }
+        };
+    }
+
     // ====== DISCONNECTING ========================================================================
 
     public void disconnect() {
+        roomReconnector.stop();
+        qualityController.stop();
+        connectPipeline.cancel();
+        cancelFirstFrameProbes();
+        cancelRoomSwitch();
         if (room != null) {
             room.disconnect();
         }
-        if (localAudioTrack != null) {
-            localAudioTrack.release();
-            localAudioTrack = null;
-        }
-        if (localVideoTrack != null) {
-            localVideoTrack.release();
-            localVideoTrack = null;
-        }
+        poolLocalMedia();
     }
 
     // ===== BUTTON LISTENERS ======================================================================
 
-    public void switchCamera() {
-        if (cameraCapturer != null) {
-            CameraCapturer.CameraSource cameraSource = cameraCapturer.getCameraSource();
-            final boolean isBackCamera = cameraSource == CameraCapturer.CameraSource.BACK_CAMERA;
-            cameraCapturer.switchCamera();
-            if (thumbnailVideoView.getVisibility() == View.VISIBLE) {
-                thumbnailVideoView.setMirror(isBackCamera);
-            } else {
-                primaryVideoView.setMirror(isBackCamera);
-            }
-
-            WritableMap event = new WritableNativeMap();
-            event.putBoolean("isBackCamera", isBackCamera);
-            pushEvent(CustomTwilioVideoView.this, ON_CAMERA_SWITCHED, event);
+    /*
+     * Returns false when there is no camera to switch.
+     */
+    public boolean switchCamera() {
+        if (cameraCapturer == null) {
+            return false;
         }
+        CameraCapturer.CameraSource cameraSource = cameraCapturer.getCameraSource();
+        final boolean isBackCamera = cameraSource == CameraCapturer.CameraSource.BACK_CAMERA;
+        cameraCapturer.switchCamera();
+        session.setLocalMirror(isBackCamera);
+        publishLocalTracks();
+
+        WritableMap event = new WritableNativeMap();
+        event.putBoolean("isBackCamera", isBackCamera);
+        pushStateEvent(CustomTwilioVideoView.this, ON_CAMERA_SWITCHED, event);
+        return true;
     }
 
     public void toggleVideo() {
         if (localVideoTrack != null) {
-            boolean enable = !localVideoTrack.isEnabled();
-            localVideoTrack.enable(enable);
-
-            WritableMap event = new WritableNativeMap();
-            event.putBoolean("videoEnabled", enable);
-            pushEvent(CustomTwilioVideoView.this, ON_VIDEO_CHANGED, event);
+            setVideoEnabled(!localVideoTrack.isEnabled());
         }
     }
 
     public void toggleAudio() {
         if (localAudioTrack != null) {
-            boolean enable = !localAudioTrack.isEnabled();
-            localAudioTrack.enable(enable);
+            setAudioEnabled(!localAudioTrack.isEnabled());
+        }
+    }
+
+    /*
+     * Returns false when there is no local video track.
+     */
+    public boolean setVideoEnabled(boolean enable) {
+        if (localVideoTrack == null) {
+            return false;
+        }
+        localVideoTrack.enable(enable);
+        publishLocalTracks();
+
+        WritableMap event = new WritableNativeMap();
+        event.putBoolean("videoEnabled", enable);
+        pushStateEvent(CustomTwilioVideoView.this, ON_VIDEO_CHANGED, event);
+        return true;
+    }
+
+    /*
+     * Returns false when there is no local audio track.
+     */
+    public boolean setAudioEnabled(boolean enable) {
+        if (localAudioTrack == null) {
+            return false;
+        }
+        localAudioTrack.enable(enable);
+        publishLocalTracks();
+
+        WritableMap event = new WritableNativeMap();
+        event.putBoolean("audioEnabled", enable);
+        pushStateEvent(CustomTwilioVideoView.this, ON_AUDIO_CHANGED, event);
+        return true;
+    }
+
+    boolean isBackCamera() {
+        return cameraCapturer != null
+                && cameraCapturer.getCameraSource() == CameraCapturer.CameraSource.BACK_CAMERA;
+    }
+
+    /*
+     * The connected room, null while connecting, reconnecting or disconnected.
+     */
+    @Nullable
+    Room getConnectedRoom() {
+        return room != null && room.getState() == RoomState.CONNECTED ? room : null;
+    }
+
+    // ===== RENDER POLICY =========================================================================
+
+    /*
+     * At most maxRenderedTracks remote previews on screen get a renderer, 0 renders all of them.
+     * The SDK keeps receiving and decoding every subscribed track, only drawing is saved.
+     */
+    public void setMaxRenderedTracks(int maxRenderedTracks) {
+        this.maxRenderedTracks = maxRenderedTracks;
+        remoteVideoRegistry.setMaxRenderedTracks(maxRenderedTracks);
+    }
+
+    public void setRenderPriority(@Nullable String renderPriority) {
+        this.renderPriority = renderPriority;
+        remoteVideoRegistry.setRenderPriority(renderPriority);
+    }
+
+    public void setPinnedParticipants(List<String> participantSids) {
+        this.pinnedParticipants = participantSids;
+        remoteVideoRegistry.setPinnedParticipantSids(participantSids);
+    }
+
+    /*
+     * The SDK does not detect the dominant speaker, the app reports it.
+     */
+    public void setDominantSpeaker(@Nullable String participantSid) {
+        this.dominantSpeaker = participantSid;
+        remoteVideoRegistry.setDominantSpeakerSid(participantSid);
+    }
+
+    /*
+     * More participant joins and leaves than this within a frame are sent as one
+     * onParticipantsChanged event. 0 sends each one, right away.
+     */
+    public void setParticipantsChangedThreshold(int threshold) {
+        participantEvents.setThreshold(threshold);
+    }
 
-            WritableMap event = new WritableNativeMap();
-            event.putBoolean("audioEnabled", enable);
-            pushEvent(CustomTwilioVideoView.this, ON_AUDIO_CHANGED, event);
+    // ===== STATS =================================================================================
+
+    /*
+     * Polls the room's stats every intervalMs while connected, 0 does not poll.
+     */
+    public void setStatsInterval(int intervalMs) {
+        statsCollector.setInterval(intervalMs);
+    }
+
+    StatsCollector getStatsCollector() {
+        return statsCollector;
+    }
+
+    private StatsCollector.Listener statsListener() {
+        return new StatsCollector.Listener() {
+            @Override
+            public void onStats(WritableMap stats) {
+                pushStateEvent(CustomTwilioVideoView.this, ON_STATS, stats);
+            }
+        };
+    }
+
+    // ===== SESSION ===============================================================================
+
+    public void setSessionId(@Nullable String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    /*
+     * Joins the session named by the sessionId prop. When it changed during a call, the local
+     * track and the room's participants move over to the new session's previews.
+     */
+    void bindSession() {
+        String sessionId = this.sessionId != null ? this.sessionId : CallSession.DEFAULT_SESSION_ID;
+        if (session != null && session.getSessionId().equals(sessionId)) {
+            return;
+        }
+        unbindSession();
+        session = CallSession.instance(sessionId, this);
+        session.setCallView(this);
+        remoteVideoRegistry = session.getRemoteVideoRegistry();
+        qualityController.setRemoteVideoRegistry(remoteVideoRegistry);
+        remoteVideoRegistry.setMaxRenderedTracks(maxRenderedTracks);
+        remoteVideoRegistry.setRenderPriority(renderPriority);
+        remoteVideoRegistry.setPinnedParticipantSids(pinnedParticipants);
+        remoteVideoRegistry.setDominantSpeakerSid(dominantSpeaker);
+        remoteVideoRegistry.setRenderingEnabled(!inBackground);
+        remoteVideoRegistry.setListener(new RemoteVideoRegistry.Listener() {
+            @Override
+            public void onRenderedTracksChanged(int renderedTracks, int availableTracks) {
+                WritableMap event = new WritableNativeMap();
+                event.putInt("renderedTracks", renderedTracks);
+                event.putInt("availableTracks", availableTracks);
+                pushStateEvent(CustomTwilioVideoView.this, ON_RENDERED_TRACKS_CHANGED, event);
+            }
+        });
+        final String boundSessionId = sessionId;
+        session.getRoomStateStore().setListener(new RoomStateStore.Listener() {
+            @Override
+            public void onRoomStateChanged(WritableMap changes) {
+                changes.putString("sessionId", boundSessionId);
+                themedReactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+                                  .emit(TwilioVideoModule.ROOM_STATE_CHANGED, changes);
+            }
+        });
+        if (room != null) {
+            if (room.getState() == RoomState.CONNECTED) {
+                session.getRoomStateStore().roomConnected(room);
+            }
+            for (Participant participant : room.getParticipants()) {
+                remoteVideoRegistry.addParticipant(participant);
+                session.getRoomStateStore().participantConnected(participant);
+            }
         }
+        if (localVideoTrack != null) {
+            session.setLocalVideoTrack(localVideoTrack);
+        }
+        publishLocalTracks();
+    }
+
+    private void unbindSession() {
+        if (session != null) {
+            remoteVideoRegistry.setListener(null);
+            remoteVideoRegistry.clear();
+            session.getRoomStateStore().roomDisconnected();
+            session.getRoomStateStore().localTracksChanged(null, null, false);
+            session.setLocalVideoTrack(null);
+            session.release(this);
+            session = null;
+            qualityController.setRemoteVideoRegistry(null);
+        }
+    }
+
+    /*
+     * Called when React drops the view. Leaves the room and releases the session so the previews
+     * and the Activity are not retained by a call screen that is gone.
+     */
+    public void release() {
+        disconnect();
+        qualityController.stop();
+        statsCollector.release();
+        connectPipeline.release();
+        participantEvents.clear();
+        themedReactContext.removeLifecycleEventListener(this);
+        unbindSession();
     }
 
     // ====== ROOM LISTENER ========================================================================
@@ -381,27 +1155,83 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         return new Room.Listener() {
             @Override
             public void onConnected(Room room) {
+                Room previousRoom = null;
+                if (room == pendingRoom) {
+                    previousRoom = completeRoomSwitch(room);
+                } else if (room != CustomTwilioVideoView.this.room) {
+                    return;
+                }
+                statsCollector.start(room);
+                updateQualityController();
+                if (roomReconnector.onConnected()) {
+                    // Same call, the participants come back as new objects with new tracks.
+                    remoteVideoRegistry.clear();
+                    session.getRoomStateStore().roomConnected(room);
+                    for (Participant participant : room.getParticipants()) {
+                        addParticipant(participant);
+                    }
+                    return;
+                }
+                session.getRoomStateStore().roomConnected(room);
+
                 WritableMap event = new WritableNativeMap();
                 event.putString("room", room.getName());
                 List<Participant> participants = room.getParticipants();
 
                 WritableArray participantsNames = new WritableNativeArray();
+                WritableArray participantsArray = new WritableNativeArray();
                 for (Participant participant : participants) {
                     participantsNames.pushString(participant.getIdentity());
+                    participantsArray.pushMap(participantToMap(participant));
                 }
                 event.putArray("participantsNames", participantsNames);
+                event.putArray("participants", participantsArray);
 
                 pushEvent(CustomTwilioVideoView.this, ON_CONNECTED, event);
 
-                //noinspection LoopStatementThatDoesntLoop
                 for (Participant participant : participants) {
                     addParticipant(participant);
-                    break;
+                }
+
+                if (previousRoom != null) {
+                    previousRoom.disconnect();
+                    long switchDurationMs = SystemClock.elapsedRealtime() - roomSwitchStartTime;
+                    Log.i(TAG, "Switched room in " + switchDurationMs + " ms");
+                    WritableMap switchEvent = new WritableNativeMap();
+                    switchEvent.putString("room", room.getName());
+                    switchEvent.putString("previousRoom", previousRoom.getName());
+                    switchEvent.putDouble("duration", switchDurationMs);
+                    pushEvent(CustomTwilioVideoView.this, ON_ROOM_SWITCHED, switchEvent);
                 }
             }
 
             @Override
             public void onConnectFailure(Room room, TwilioException e) {
+                if (room == pendingRoom) {
+                    // Stay in the current room, the call and its reconnects go on there.
+                    pendingRoom = null;
+                    pendingAccessToken = null;
+                    switchingRoom = false;
+                    WritableMap event = new WritableNativeMap();
+                    event.putString("reason", e.getExplanation());
+                    event.putInt("code", e.getCode());
+                    event.putString("failedRoom", room.getName());
+                    if (CustomTwilioVideoView.this.room != null) {
+                        event.putString("room", CustomTwilioVideoView.this.room.getName());
+                    }
+                    pushEvent(CustomTwilioVideoView.this, ON_ROOM_SWITCH_FAILED, event);
+                    return;
+                }
+                if (room != CustomTwilioVideoView.this.room) {
+                    return;
+                }
+                if (roomReconnector.onConnectFailure(e.getCode())) {
+                    if (!roomReconnector.isReconnecting()) {
+                        // Gave up, the call ends here.
+                        onRoomDisconnected(e);
+                    }
+                    return;
+                }
                 WritableMap event = new WritableNativeMap();
                 event.putString("reason", e.getExplanation());
                 pushEvent(CustomTwilioVideoView.this, ON_CONNECT_FAILURE, event);
@@ -409,25 +1239,30 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
 
             @Override
             public void onDisconnected(Room room, TwilioException e) {
-                WritableMap event = new WritableNativeMap();
-                event.putString("participant", participantIdentity);
-                pushEvent(CustomTwilioVideoView.this, ON_DICONNECTED, event);
-
-                CustomTwilioVideoView.this.room = null;
-                // Only reinitialize the UI if disconnect was not called from onDestroy()
-                if (!disconnectedFromOnDestroy) {
-                    setAudioFocus(false);
+                // A room left by switching, or abandoned before it connected.
+                if (room != CustomTwilioVideoView.this.room) {
+                    return;
+                }
+                statsCollector.stop();
+                qualityController.stop();
+                if (roomReconnector.onDisconnected(e != null ? e.getCode() : RoomReconnector.NO_ERROR)) {
+                    return;
                 }
+                onRoomDisconnected(e);
             }
 
             @Override
             public void onParticipantConnected(Room room, Participant participant) {
-                addParticipant(participant);
+                if (room == CustomTwilioVideoView.this.room) {
+                    addParticipant(participant);
+                }
             }
 
             @Override
             public void onParticipantDisconnected(Room room, Participant participant) {
-                removeParticipant(participant);
+                if (room == CustomTwilioVideoView.this.room) {
+                    removeParticipant(participant);
+                }
             }
 
             @Override
@@ -440,133 +1275,167 @@ public class CustomTwilioVideoView extends View implements LifecycleEventListene
         };
     }
 
+    private void onRoomDisconnected(@Nullable TwilioException e) {
+        WritableMap event = new WritableNativeMap();
+        event.putString("participant", participantIdentity);
+        if (e != null) {
+            event.putInt("code", e.getCode());
+            event.putString("reason", e.getExplanation());
+        }
+        pushEvent(CustomTwilioVideoView.this, ON_DICONNECTED, event);
+
+        room = null;
+        qualityController.stop();
+        remoteVideoRegistry.clear();
+        session.getRoomStateStore().roomDisconnected();
+        // Only reinitialize the UI if disconnect was not called from onDestroy()
+        if (!disconnectedFromOnDestroy) {
+            setAudioFocus(false);
+        }
+    }
+
     /*
      * Called when participant joins the room
      */
     private void addParticipant(Participant participant) {
         participantIdentity = participant.getIdentity();
-        WritableMap event = new WritableNativeMap();
-        event.putString("participant", participantIdentity);
-        pushEvent(this, ON_PARTICIPANT_CONNECTED, event);
+        session.getRoomStateStore().participantConnected(participant);
+        participantEvents.participantConnected(participant.getSid(), participantToMap(participant));
 
         /*
-         * Add participant renderer
+         * Add participant renderers
          */
-        if (participant.getVideoTracks()
-                       .size() > 0) {
-            addParticipantVideo(participant.getVideoTracks()
-                                           .get(0));
+        remoteVideoRegistry.addParticipant(participant);
+        for (VideoTrack videoTrack : participant.getVideoTracks()) {
+            connectPipeline.onRemoteVideoTrack(videoTrack);
         }
 
         /*
          * Start listening for participant media events
          */
-        participant.setListener(mediaListener());
+        participant.setListener(ConnectPipeline.onUiThread(mediaListener(room)));
     }
 
     /*
      * Called when participant leaves the room
      */
     private void removeParticipant(Participant participant) {
-        WritableMap event = new WritableNativeMap();
-        event.putString("participant", participantIdentity);
-        pushEvent(this, ON_PARTICIPANT_DISCONNECTED, event);
-        if (!participant.getIdentity()
-                        .equals(participantIdentity)) {
-            return;
-        }
+        participantEvents.participantDisconnected(participant.getSid(), participantToMap(participant));
 
         /*
-         * Remove participant renderer
+         * Remove participant renderers
          */
-        if (participant.getVideoTracks()
-                       .size() > 0) {
-            removeParticipantVideo(participant.getVideoTracks()
-                                              .get(0));
-        }
+        remoteVideoRegistry.removeParticipant(participant);
+        session.getRoomStateStore().participantDisconnected(participant.getSid());
         participant.setListener(null);
     }
 
+    private static WritableMap participantToMap(Participant participant) {
+        WritableMap map = new WritableNativeMap();
+        map.putString("participant", participant.getIdentity());
+        map.putString("participantSid", participant.getSid());
+        return map;
+    }
+
+    private static WritableMap videoTrackToMap(Participant participant, VideoTrack videoTrack) {
+        WritableMap map = participantToMap(participant);
+        map.putString("trackId", videoTrack.getTrackId());
+        return map;
+    }
+
 
     // ====== MEDIA LISTENER =======================================================================
 
-    private Participant.Listener mediaListener() {
+    /*
+     * Events still queued for a room that was switched away from are dropped.
+     */
+    private Participant.Listener mediaListener(final Room room) {
         return new Participant.Listener() {
             @Override
             public void onAudioTrackAdded(Participant participant, AudioTrack audioTrack) {
-
+                if (room == CustomTwilioVideoView.this.room) {
+                    session.getRoomStateStore().trackAdded(participant.getSid(), audioTrack.getTrackId(),
+                                                           RoomStateStore.KIND_AUDIO, audioTrack.isEnabled());
+                }
             }
 
             @Override
             public void onAudioTrackRemoved(Participant participant, AudioTrack audioTrack) {
-
+                if (room == CustomTwilioVideoView.this.room) {
+                    session.getRoomStateStore().trackRemoved(participant.getSid(), audioTrack.getTrackId());
+                }
             }
 
             @Override
             public void onVideoTrackAdded(Participant participant, VideoTrack videoTrack) {
-                addParticipantVideo(videoTrack);
+                if (room != CustomTwilioVideoView.this.room) {
+                    return;
+                }
+                remoteVideoRegistry.addVideoTrack(participant.getSid(), videoTrack);
+                session.getRoomStateStore().trackAdded(participant.getSid(), videoTrack.getTrackId(),
+                                                       RoomStateStore.KIND_VIDEO, videoTrack.isEnabled());
+                connectPipeline.onRemoteVideoTrack(videoTrack);
+                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_ADDED_VIDEO_TRACK,
+                          videoTrackToMap(participant, videoTrack));
             }
 
             @Override
             public void onVideoTrackRemoved(Participant participant, VideoTrack videoTrack) {
-                removeParticipantVideo(videoTrack);
+                if (room != CustomTwilioVideoView.this.room) {
+                    return;
+                }
+                remoteVideoRegistry.removeVideoTrack(participant.getSid(), videoTrack);
+                session.getRoomStateStore().trackRemoved(participant.getSid(), videoTrack.getTrackId());
+                pushEvent(CustomTwilioVideoView.this, ON_PARTICIPANT_REMOVED_VIDEO_TRACK,
+                          videoTrackToMap(participant, videoTrack));
             }
 
             @Override
             public void onAudioTrackEnabled(Participant participant, AudioTrack audioTrack) {
-
+                if (room == CustomTwilioVideoView.this.room) {
+                    session.getRoomStateStore().trackEnabled(participant.getSid(), audioTrack.getTrackId(), true);
+                }
             }
 
             @Override
             public void onAudioTrackDisabled(Participant participant, AudioTrack audioTrack) {
-
+                if (room == CustomTwilioVideoView.this.room) {
+                    session.getRoomStateStore().trackEnabled(participant.getSid(), audioTrack.getTrackId(), false);
+                }
             }
 
             @Override
             public void onVideoTrackEnabled(Participant participant, VideoTrack videoTrack) {
-
+                if (room == CustomTwilioVideoView.this.room) {
+                    remoteVideoRegistry.markActive(participant.getSid());
+                    session.getRoomStateStore().trackEnabled(participant.getSid(), videoTrack.getTrackId(), true);
+                }
             }
 
             @Override
             public void onVideoTrackDisabled(Participant participant, VideoTrack videoTrack) {
-
+                if (room == CustomTwilioVideoView.this.room) {
+                    session.getRoomStateStore().trackEnabled(participant.getSid(), videoTrack.getTrackId(), false);
+                }
             }
         };
     }
 
-    private void addParticipantVideo(VideoTrack videoTrack) {
-        if (participantVideoTrack != null && primaryVideoView != null) {
-            participantVideoTrack.removeRenderer(primaryVideoView);
-        }
-        participantVideoTrack = videoTrack;
-        if (primaryVideoView != null) {
-            participantVideoTrack.addRenderer(primaryVideoView);
-        }
-    }
-
-    private void removeParticipantVideo(VideoTrack videoTrack) {
-        if (participantVideoTrack != null && primaryVideoView != null) {
-            participantVideoTrack.removeRenderer(primaryVideoView);
-        }
-        participantVideoTrack = null;
-    }
     // ===== EVENTS TO RN ==========================================================================
 
+    /*
+     * Sent after the participant events held by the batcher, to keep the order.
+     */
     void pushEvent(View view, String name, WritableMap data) {
-        eventEmitter.receiveEvent(view.getId(), name, data);
-    }
-
-    public static void registerPrimaryVideoView(VideoView v) {
-        primaryVideoView = v;
-        if (participantVideoTrack != null) {
-            participantVideoTrack.addRenderer(v);
-        }
+        participantEvents.flush();
+        eventDispatcher.dispatchEvent(TwilioEvent.of(view.getId(), name, data));
     }
 
-    public static void registerThumbnailVideoView(VideoView v) {
-        thumbnailVideoView = v;
-        if (localVideoTrack != null) {
-            localVideoTrack.addRenderer(v);
-        }
+    /*
+     * For events carrying the whole state they report, only the latest of a frame is sent.
+     */
+    void pushStateEvent(View view, String name, WritableMap data) {
+        participantEvents.flush();
+        eventDispatcher.dispatchEvent(TwilioEvent.state(view.getId(), name, data));
     }
 }
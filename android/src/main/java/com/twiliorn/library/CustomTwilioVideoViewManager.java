@@ -3,21 +3,36 @@ package com.twiliorn.library;
 import android.support.annotation.Nullable;
 
 import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableType;
 import com.facebook.react.common.MapBuilder;
 import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.annotations.ReactProp;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_AUDIO_CHANGED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CAMERA_SWITCHED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_FAILURE;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_CONNECT_STAGE;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_DICONNECTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANTS_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_ADDED_VIDEO_TRACK;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_CONNECTED;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_DISCONNECTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_REMOVED_VIDEO_TRACK;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_QUALITY_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RECONNECTING;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_RENDERED_TRACKS_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_ROOM_SWITCHED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_ROOM_SWITCH_FAILED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_STATS;
 import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_VIDEO_RESUMED;
 
 public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilioVideoView> {
 
@@ -28,6 +43,9 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
     private static final int SWITCH_CAMERA = 3;
     private static final int TOGGLE_VIDEO = 4;
     private static final int TOGGLE_SOUND = 5;
+    private static final int START_LOCAL_PREVIEW = 6;
+    private static final int STOP_LOCAL_PREVIEW = 7;
+    private static final int SWITCH_ROOM = 8;
 
     @Override
     public String getName() {
@@ -39,6 +57,76 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
         return new CustomTwilioVideoView(reactContext);
     }
 
+    @ReactProp(name = "sessionId")
+    public void setSessionId(CustomTwilioVideoView view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
+
+    @ReactProp(name = "maxRenderedTracks", defaultInt = 0)
+    public void setMaxRenderedTracks(CustomTwilioVideoView view, int maxRenderedTracks) {
+        view.setMaxRenderedTracks(maxRenderedTracks);
+    }
+
+    @ReactProp(name = "renderPriority")
+    public void setRenderPriority(CustomTwilioVideoView view, @Nullable String renderPriority) {
+        view.setRenderPriority(renderPriority);
+    }
+
+    @ReactProp(name = "pinnedParticipants")
+    public void setPinnedParticipants(CustomTwilioVideoView view, @Nullable ReadableArray participantSids) {
+        List<String> sids = new ArrayList<>();
+        if (participantSids != null) {
+            for (int i = 0; i < participantSids.size(); i++) {
+                if (participantSids.getType(i) == ReadableType.String) {
+                    sids.add(participantSids.getString(i));
+                }
+            }
+        }
+        view.setPinnedParticipants(sids);
+    }
+
+    @ReactProp(name = "dominantSpeaker")
+    public void setDominantSpeaker(CustomTwilioVideoView view, @Nullable String participantSid) {
+        view.setDominantSpeaker(participantSid);
+    }
+
+    @ReactProp(name = "localMediaIdleTimeout", defaultInt = 0)
+    public void setLocalMediaIdleTimeout(CustomTwilioVideoView view, int idleTimeoutMs) {
+        view.setLocalMediaIdleTimeout(idleTimeoutMs);
+    }
+
+    @ReactProp(name = "captureProfile")
+    public void setCaptureProfile(CustomTwilioVideoView view, @Nullable String captureProfile) {
+        view.setCaptureProfile(captureProfile);
+    }
+
+    @ReactProp(name = "adaptiveQuality", defaultBoolean = false)
+    public void setAdaptiveQuality(CustomTwilioVideoView view, boolean adaptiveQuality) {
+        view.setAdaptiveQuality(adaptiveQuality);
+    }
+
+    @ReactProp(name = "participantsChangedThreshold", defaultInt = 0)
+    public void setParticipantsChangedThreshold(CustomTwilioVideoView view, int threshold) {
+        view.setParticipantsChangedThreshold(threshold);
+    }
+
+    @ReactProp(name = "statsInterval", defaultInt = 0)
+    public void setStatsInterval(CustomTwilioVideoView view, int intervalMs) {
+        view.setStatsInterval(intervalMs);
+    }
+
+    @Override
+    protected void onAfterUpdateTransaction(CustomTwilioVideoView view) {
+        super.onAfterUpdateTransaction(view);
+        view.bindSession();
+    }
+
+    @Override
+    public void onDropViewInstance(CustomTwilioVideoView view) {
+        view.release();
+        super.onDropViewInstance(view);
+    }
+
     @Override
     public void receiveCommand(CustomTwilioVideoView view, int commandId, @Nullable ReadableArray args) {
         switch (commandId) {
@@ -60,6 +148,15 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
             case TOGGLE_SOUND:
                 view.toggleAudio();
                 break;
+            case START_LOCAL_PREVIEW:
+                view.startLocalPreview();
+                break;
+            case STOP_LOCAL_PREVIEW:
+                view.stopLocalPreview();
+                break;
+            case SWITCH_ROOM:
+                view.switchRoom(args.getString(0));
+                break;
         }
     }
 
@@ -77,21 +174,40 @@ public class CustomTwilioVideoViewManager extends SimpleViewManager<CustomTwilio
         );
 
         map.putAll(MapBuilder.of(
-                ON_PARTICIPANT_DISCONNECTED, MapBuilder.of("registrationName", ON_PARTICIPANT_DISCONNECTED)
+                ON_PARTICIPANT_DISCONNECTED, MapBuilder.of("registrationName", ON_PARTICIPANT_DISCONNECTED),
+                ON_VIDEO_RESUMED, MapBuilder.of("registrationName", ON_VIDEO_RESUMED),
+                ON_PARTICIPANT_ADDED_VIDEO_TRACK, MapBuilder.of("registrationName", ON_PARTICIPANT_ADDED_VIDEO_TRACK),
+                ON_PARTICIPANT_REMOVED_VIDEO_TRACK, MapBuilder.of("registrationName", ON_PARTICIPANT_REMOVED_VIDEO_TRACK),
+                ON_RENDERED_TRACKS_CHANGED, MapBuilder.of("registrationName", ON_RENDERED_TRACKS_CHANGED),
+                ON_CONNECT_STAGE, MapBuilder.of("registrationName", ON_CONNECT_STAGE)
         ));
 
+        map.put(ON_ROOM_SWITCHED, MapBuilder.of("registrationName", ON_ROOM_SWITCHED));
+        map.put(ON_ROOM_SWITCH_FAILED, MapBuilder.of("registrationName", ON_ROOM_SWITCH_FAILED));
+        map.put(ON_RECONNECTING, MapBuilder.of("registrationName", ON_RECONNECTING));
+        map.put(ON_RECONNECTED, MapBuilder.of("registrationName", ON_RECONNECTED));
+        map.put(ON_QUALITY_CHANGED, MapBuilder.of("registrationName", ON_QUALITY_CHANGED));
+        map.put(ON_PARTICIPANTS_CHANGED, MapBuilder.of("registrationName", ON_PARTICIPANTS_CHANGED));
+        map.put(ON_STATS, MapBuilder.of("registrationName", ON_STATS));
+
         return map;
     }
 
     @Override
     @Nullable
     public Map<String, Integer> getCommandsMap() {
-        return MapBuilder.of(
+        Map<String, Integer> map = MapBuilder.of(
                 "connectToRoom", CONNECT_TO_ROOM,
                 "disconnect", DISCONNECT,
                 "switchCamera", SWITCH_CAMERA,
                 "toggleVideo", TOGGLE_VIDEO,
-                "toggleSound", TOGGLE_SOUND
+                "toggleSound", TOGGLE_SOUND,
+                "startLocalPreview", START_LOCAL_PREVIEW,
+                "stopLocalPreview", STOP_LOCAL_PREVIEW
         );
+
+        map.put("switchRoom", SWITCH_ROOM);
+
+        return map;
     }
 }
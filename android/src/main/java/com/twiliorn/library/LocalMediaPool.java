@@ -0,0 +1,121 @@
+package com.twiliorn.library;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.twilio.video.CameraCapturer;
+import com.twilio.video.LocalAudioTrack;
+import com.twilio.video.LocalVideoTrack;
+
+/**
+ * Keeps the camera capturer and local tracks of a finished call for a while, so that a reconnect
+ * or the next call does not open the camera and create the tracks again.
+ *
+ * Media put back is released once it stayed idle for the given timeout, when the app is hidden
+ * or when memory runs low. The pool holds the media of one call, the device has one camera to
+ * share. All methods must be called on the UI thread.
+ */
+class LocalMediaPool implements ComponentCallbacks2 {
+
+    private static final String TAG = "LocalMediaPool";
+
+    private static LocalMediaPool instance;
+
+    static class Media {
+        final CameraCapturer  cameraCapturer;
+        final LocalAudioTrack localAudioTrack;
+        final LocalVideoTrack localVideoTrack;
+
+        Media(CameraCapturer cameraCapturer, LocalAudioTrack localAudioTrack, LocalVideoTrack localVideoTrack) {
+            this.cameraCapturer = cameraCapturer;
+            this.localAudioTrack = localAudioTrack;
+            this.localVideoTrack = localVideoTrack;
+        }
+    }
+
+    private final Handler uiThreadHandler = new Handler(Looper.getMainLooper());
+    private final Runnable releaseIdle = new Runnable() {
+        @Override
+        public void run() {
+            Log.i(TAG, "Releasing idle local media");
+            clear();
+        }
+    };
+    private final CameraFormatCache cameraFormatCache;
+    private Media media;
+
+    static LocalMediaPool instance(Context context) {
+        if (instance == null) {
+            instance = new LocalMediaPool(context);
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    private LocalMediaPool(Context context) {
+        this.cameraFormatCache = CameraFormatCache.instance(context);
+    }
+
+    /**
+     * Keeps the given media for idleTimeoutMs, replacing media already pooled. A timeout of 0
+     * or less releases it right away.
+     */
+    void put(@Nullable CameraCapturer cameraCapturer,
+             @Nullable LocalAudioTrack localAudioTrack,
+             @Nullable LocalVideoTrack localVideoTrack,
+             long idleTimeoutMs) {
+        clear();
+        if (idleTimeoutMs <= 0) {
+            ConnectPipeline.release(localAudioTrack, localVideoTrack);
+            cameraFormatCache.refreshInBackground(cameraCapturer);
+            return;
+        }
+        if (localAudioTrack == null && localVideoTrack == null) {
+            return;
+        }
+        media = new Media(cameraCapturer, localAudioTrack, localVideoTrack);
+        uiThreadHandler.postDelayed(releaseIdle, idleTimeoutMs);
+    }
+
+    /**
+     * Hands the pooled media over to the caller, which becomes responsible for releasing it.
+     */
+    @Nullable
+    Media take() {
+        Media media = this.media;
+        this.media = null;
+        uiThreadHandler.removeCallbacks(releaseIdle);
+        return media;
+    }
+
+    void clear() {
+        Media media = take();
+        if (media != null) {
+            ConnectPipeline.release(media.localAudioTrack, media.localVideoTrack);
+            cameraFormatCache.refreshInBackground(media.cameraCapturer);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        // Also reached when the UI is hidden, nobody is going to call from the background.
+        if (level >= TRIM_MEMORY_RUNNING_LOW && media != null) {
+            Log.i(TAG, "Releasing pooled local media, trim level " + level);
+            clear();
+        }
+    }
+
+    @Override
+    public void onLowMemory() {
+        clear();
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+}
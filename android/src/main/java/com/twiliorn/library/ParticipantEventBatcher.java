@@ -0,0 +1,134 @@
+package com.twiliorn.library;
+
+import android.view.Choreographer;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+
+import java.util.LinkedHashMap;
+
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANTS_CHANGED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_CONNECTED;
+import static com.twiliorn.library.CustomTwilioVideoView.Events.ON_PARTICIPANT_DISCONNECTED;
+
+/**
+ * Holds participant joins and leaves until the next frame, then sends them one event each, or a
+ * single onParticipantsChanged delta once there are more than the threshold.
+ *
+ * A participant joining and leaving within the frame is dropped, JS never saw it. Any other
+ * event of the view must {@link #flush()} first so JS receives events in order. With a threshold
+ * of 0 events are sent right away. Must be used on the UI thread.
+ */
+class ParticipantEventBatcher {
+
+    interface Sink {
+        void dispatch(String eventName, WritableMap data);
+    }
+
+    private static class Change {
+        final WritableMap participant;
+        final boolean     connected;
+
+        Change(WritableMap participant, boolean connected) {
+            this.participant = participant;
+            this.connected = connected;
+        }
+    }
+
+    private final Sink                          sink;
+    private final LinkedHashMap<String, Change> changes = new LinkedHashMap<>();
+    private final Choreographer.FrameCallback   flushCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            scheduled = false;
+            flush();
+        }
+    };
+
+    private int     threshold;
+    private boolean scheduled;
+
+    ParticipantEventBatcher(Sink sink) {
+        this.sink = sink;
+    }
+
+    void setThreshold(int threshold) {
+        this.threshold = threshold;
+        if (threshold <= 0) {
+            flush();
+        }
+    }
+
+    void participantConnected(String participantSid, WritableMap participant) {
+        if (threshold <= 0) {
+            sink.dispatch(ON_PARTICIPANT_CONNECTED, participant);
+            return;
+        }
+        changes.put(participantSid, new Change(participant, true));
+        schedule();
+    }
+
+    void participantDisconnected(String participantSid, WritableMap participant) {
+        if (threshold <= 0) {
+            sink.dispatch(ON_PARTICIPANT_DISCONNECTED, participant);
+            return;
+        }
+        Change pending = changes.get(participantSid);
+        if (pending != null && pending.connected) {
+            changes.remove(participantSid);
+            return;
+        }
+        changes.put(participantSid, new Change(participant, false));
+        schedule();
+    }
+
+    /**
+     * Sends the pending changes now.
+     */
+    void flush() {
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(flushCallback);
+            scheduled = false;
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        if (changes.size() <= threshold) {
+            for (Change change : changes.values()) {
+                sink.dispatch(change.connected ? ON_PARTICIPANT_CONNECTED : ON_PARTICIPANT_DISCONNECTED,
+                              change.participant);
+            }
+        } else {
+            WritableArray connected = new WritableNativeArray();
+            WritableArray disconnected = new WritableNativeArray();
+            for (Change change : changes.values()) {
+                (change.connected ? connected : disconnected).pushMap(change.participant);
+            }
+            WritableMap event = new WritableNativeMap();
+            event.putArray("connected", connected);
+            event.putArray("disconnected", disconnected);
+            sink.dispatch(ON_PARTICIPANTS_CHANGED, event);
+        }
+        changes.clear();
+    }
+
+    /**
+     * Drops the pending changes, e.g. when the view goes away.
+     */
+    void clear() {
+        if (scheduled) {
+            Choreographer.getInstance().removeFrameCallback(flushCallback);
+            scheduled = false;
+        }
+        changes.clear();
+    }
+
+    private void schedule() {
+        if (!scheduled) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(flushCallback);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.twiliorn.library;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import com.twilio.video.RNRendererStatistics;
+
+/**
+ * Steps local capture down a quality ladder when the device saturates, and back up once it
+ * recovered.
+ *
+ * Every few seconds it samples the process CPU usage, the share of remote frames the renderers
+ * dropped because drawing fell behind, and the battery temperature. Sustained pressure on any of
+ * them moves one step down, a longer calm period one step up, with a cool-down after each change
+ * so the quality does not oscillate. Must be used on the UI thread.
+ */
+class QualityController {
+
+    private static final String TAG = "QualityController";
+
+    static final String REASON_CPU         = "cpu";
+    static final String REASON_DROPPED     = "droppedFrames";
+    static final String REASON_TEMPERATURE = "temperature";
+    static final String REASON_RECOVERED   = "recovered";
+
+    static final CaptureProfile[] LADDER = {
+        new CaptureProfile(720, 30, 0, 0),
+        new CaptureProfile(540, 24, 0, 0),
+        new CaptureProfile(360, 15, 0, 0)
+    };
+
+    private static final long SAMPLE_INTERVAL_MS = 2000L;
+
+    /*
+     * Step down after DEGRADE_SAMPLES samples over any high mark, step up after UPGRADE_SAMPLES
+     * samples under all low marks. The gap between the marks is the hysteresis.
+     */
+    private static final double CPU_HIGH              = 0.80D;
+    private static final double CPU_LOW               = 0.50D;
+    private static final double DROP_RATIO_HIGH       = 0.15D;
+    private static final double DROP_RATIO_LOW        = 0.03D;
+    private static final float  TEMPERATURE_HIGH      = 42.0F;
+    private static final float  TEMPERATURE_LOW       = 39.0F;
+    private static final int    DEGRADE_SAMPLES       = 2;
+    private static final int    UPGRADE_SAMPLES       = 5;
+    private static final long   DEGRADE_COOL_DOWN_MS  = 6000L;
+    private static final long   UPGRADE_COOL_DOWN_MS  = 20000L;
+
+    interface Listener {
+        void onQualityChanged(CaptureProfile profile, int level, String reason,
+                              double cpu, double dropRatio, float temperature);
+    }
+
+    private final Context  context;
+    private final Listener listener;
+    private final int      cores = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private final Handler  uiThreadHandler = new Handler(Looper.getMainLooper());
+    private final Runnable sampleRunnable = new Runnable() {
+        @Override
+        public void run() {
+            sample();
+            uiThreadHandler.postDelayed(this, SAMPLE_INTERVAL_MS);
+        }
+    };
+
+    private RemoteVideoRegistry remoteVideoRegistry;
+    private boolean running;
+    private int     level;
+    private int     highSamples;
+    private int     lowSamples;
+    private long    lastChangeTime;
+
+    private long previousCpuTimeMs;
+    private long previousSampleTimeMs;
+    private long previousFramesReceived;
+    private long previousFramesDropped;
+
+    QualityController(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    /**
+     * The registry whose renderers are watched for dropped frames.
+     */
+    void setRemoteVideoRegistry(@Nullable RemoteVideoRegistry remoteVideoRegistry) {
+        this.remoteVideoRegistry = remoteVideoRegistry;
+        previousFramesReceived = -1L;
+    }
+
+    CaptureProfile getProfile() {
+        return LADDER[level];
+    }
+
+    void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        previousCpuTimeMs = Process.getElapsedCpuTime();
+        previousSampleTimeMs = SystemClock.elapsedRealtime();
+        previousFramesReceived = -1L;
+        highSamples = 0;
+        lowSamples = 0;
+        uiThreadHandler.postDelayed(sampleRunnable, SAMPLE_INTERVAL_MS);
+    }
+
+    void stop() {
+        running = false;
+        uiThreadHandler.removeCallbacks(sampleRunnable);
+    }
+
+    /**
+     * Back to the top of the ladder, e.g. for a new call.
+     */
+    void reset() {
+        level = 0;
+        lastChangeTime = 0L;
+        highSamples = 0;
+        lowSamples = 0;
+    }
+
+    private void sample() {
+        long now = SystemClock.elapsedRealtime();
+        long cpuTimeMs = Process.getElapsedCpuTime();
+        long elapsedMs = now - previousSampleTimeMs;
+        double cpu = elapsedMs > 0L ? (double) (cpuTimeMs - previousCpuTimeMs) / (elapsedMs * cores) : 0.0D;
+        previousCpuTimeMs = cpuTimeMs;
+        previousSampleTimeMs = now;
+
+        double dropRatio = sampleDropRatio();
+        float temperature = batteryTemperature();
+
+        String reason = null;
+        if (cpu > CPU_HIGH) {
+            reason = REASON_CPU;
+        } else if (dropRatio > DROP_RATIO_HIGH) {
+            reason = REASON_DROPPED;
+        } else if (temperature > TEMPERATURE_HIGH) {
+            reason = REASON_TEMPERATURE;
+        }
+        boolean calm = cpu < CPU_LOW && dropRatio < DROP_RATIO_LOW && temperature < TEMPERATURE_LOW;
+
+        highSamples = reason != null ? highSamples + 1 : 0;
+        lowSamples = calm ? lowSamples + 1 : 0;
+
+        if (highSamples >= DEGRADE_SAMPLES && level < LADDER.length - 1
+                && now - lastChangeTime >= DEGRADE_COOL_DOWN_MS) {
+            changeLevel(level + 1, reason, now, cpu, dropRatio, temperature);
+        } else if (lowSamples >= UPGRADE_SAMPLES && level > 0
+                && now - lastChangeTime >= UPGRADE_COOL_DOWN_MS) {
+            changeLevel(level - 1, REASON_RECOVERED, now, cpu, dropRatio, temperature);
+        }
+    }
+
+    private void changeLevel(int level, String reason, long now,
+                             double cpu, double dropRatio, float temperature) {
+        Log.i(TAG, "Capture " + LADDER[this.level] + " -> " + LADDER[level] + " (" + reason
+                + ", cpu " + cpu + ", dropped " + dropRatio + ", " + temperature + " C)");
+        this.level = level;
+        lastChangeTime = now;
+        highSamples = 0;
+        lowSamples = 0;
+        listener.onQualityChanged(LADDER[level], level, reason, cpu, dropRatio, temperature);
+    }
+
+    /*
+     * Share of the frames received by all rendering previews since the last sample that were
+     * dropped. Uses the running totals, the renderers' snapshot intervals belong to JS.
+     */
+    private double sampleDropRatio() {
+        if (remoteVideoRegistry == null) {
+            return 0.0D;
+        }
+        long received = 0L;
+        long dropped = 0L;
+        for (TwilioRemotePreview preview : remoteVideoRegistry.getAttachedPreviews()) {
+            RNRendererStatistics statistics = preview.getSurfaceViewRenderer().getStatistics();
+            received += statistics.getFramesReceived();
+            dropped += statistics.getFramesDropped();
+        }
+        double dropRatio = 0.0D;
+        long receivedSince = received - previousFramesReceived;
+        long droppedSince = dropped - previousFramesDropped;
+        // Renderers come and go and reset their totals, skip samples that went backwards.
+        if (previousFramesReceived >= 0L && receivedSince > 0L && droppedSince >= 0L) {
+            dropRatio = (double) droppedSince / receivedSince;
+        }
+        previousFramesReceived = received;
+        previousFramesDropped = dropped;
+        return dropRatio;
+    }
+
+    /*
+     * From the sticky battery broadcast, no receiver stays registered. 0 when unknown.
+     */
+    private float batteryTemperature() {
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) {
+            return 0.0F;
+        }
+        return battery.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, 0) / 10.0F;
+    }
+}
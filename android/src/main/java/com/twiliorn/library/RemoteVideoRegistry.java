@@ -0,0 +1,431 @@
+package com.twiliorn.library;
+
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import com.twilio.video.Participant;
+import com.twilio.video.VideoTrack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Remote video tracks of a room keyed by participant SID and track id, and the remote previews
+ * showing them.
+ *
+ * A preview with a participantSid shows that participant's track with the given trackId, or its
+ * first video track when no trackId is set. A preview without a participantSid shows the primary
+ * participant: the earliest joined participant that currently publishes video.
+ *
+ * Track and binding changes only rebind the previews of the participant concerned, and those
+ * showing the primary participant when it changed, so a join or leave in a large room does not
+ * touch every renderer. All methods must be called on the UI thread.
+ *
+ * When the {@link RenderPolicy} caps the number of rendered tracks, only the best ranked previews
+ * that are on screen get a renderer attached. The selection is re-evaluated once per UI loop
+ * iteration after tracks, bindings, layout or the policy change. Ranking looks at every preview
+ * on screen, but only the previews entering or leaving the selection are rebound.
+ *
+ * Previews are only referenced weakly, like the local previews of a {@link CallSession}, so one
+ * dropped without being unbound does not outlive its screen. While it renders, its track keeps
+ * it until the track goes away with its participant or room.
+ */
+class RemoteVideoRegistry {
+
+    interface Listener {
+        void onRenderedTracksChanged(int renderedTracks, int availableTracks);
+    }
+
+    private final LinkedHashMap<String, LinkedHashMap<String, VideoTrack>> tracksByParticipant = new LinkedHashMap<>();
+    private final HashMap<String, Set<TwilioRemotePreview>> previewsByParticipant = new HashMap<>();
+    private final Set<TwilioRemotePreview> primaryPreviews = weakSet();
+    private final WeakHashMap<TwilioRemotePreview, String> boundParticipants = new WeakHashMap<>();
+    private final WeakHashMap<TwilioRemotePreview, VideoTrack> attachedTracks = new WeakHashMap<>();
+    private String  primaryParticipantSid;
+    private boolean renderingEnabled = true;
+
+    private final RenderPolicy                    policy           = new RenderPolicy();
+    private final Set<TwilioRemotePreview>        selectedPreviews = weakSet();
+    private final HashSet<TwilioRemotePreview>    nextSelection    = new HashSet<>();
+    private final ArrayList<TwilioRemotePreview>  candidates       = new ArrayList<>();
+    private final Rect                            visibleRect      = new Rect();
+    private final Handler                         uiThreadHandler  = new Handler(Looper.getMainLooper());
+    private final Runnable evaluateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            evaluate();
+        }
+    };
+    private final Comparator<TwilioRemotePreview> previewComparator = new Comparator<TwilioRemotePreview>() {
+        @Override
+        public int compare(TwilioRemotePreview a, TwilioRemotePreview b) {
+            return policy.compare(participantSidOf(a), participantSidOf(b));
+        }
+    };
+    private boolean  evaluationScheduled;
+    private int      availableTracks;
+    private Listener listener;
+    private int      reportedRenderedTracks  = -1;
+    private int      reportedAvailableTracks = -1;
+
+    // ===== PARTICIPANTS AND TRACKS ===============================================================
+
+    void addParticipant(Participant participant) {
+        String participantSid = participant.getSid();
+        if (!tracksByParticipant.containsKey(participantSid)) {
+            tracksByParticipant.put(participantSid, new LinkedHashMap<String, VideoTrack>());
+        }
+        policy.markActive(participantSid);
+        for (VideoTrack videoTrack : participant.getVideoTracks()) {
+            addVideoTrack(participantSid, videoTrack);
+        }
+    }
+
+    void removeParticipant(Participant participant) {
+        String participantSid = participant.getSid();
+        LinkedHashMap<String, VideoTrack> tracks = tracksByParticipant.remove(participantSid);
+        if (tracks == null) {
+            return;
+        }
+        availableTracks -= tracks.size();
+        policy.forget(participantSid);
+        onParticipantTracksChanged(participantSid);
+    }
+
+    void addVideoTrack(String participantSid, VideoTrack videoTrack) {
+        LinkedHashMap<String, VideoTrack> tracks = tracksByParticipant.get(participantSid);
+        if (tracks == null) {
+            tracks = new LinkedHashMap<>();
+            tracksByParticipant.put(participantSid, tracks);
+        }
+        if (tracks.put(videoTrack.getTrackId(), videoTrack) == null) {
+            ++availableTracks;
+        }
+        policy.markActive(participantSid);
+        onParticipantTracksChanged(participantSid);
+    }
+
+    void removeVideoTrack(String participantSid, VideoTrack videoTrack) {
+        LinkedHashMap<String, VideoTrack> tracks = tracksByParticipant.get(participantSid);
+        if (tracks == null || tracks.remove(videoTrack.getTrackId()) == null) {
+            return;
+        }
+        --availableTracks;
+        onParticipantTracksChanged(participantSid);
+    }
+
+    /**
+     * Ranks the participant higher under the recency priority, e.g. after it enabled its video.
+     */
+    void markActive(String participantSid) {
+        if (tracksByParticipant.containsKey(participantSid)) {
+            policy.markActive(participantSid);
+            scheduleEvaluation();
+        }
+    }
+
+    /**
+     * Forgets every participant, detaching all previews. Previews stay registered for the next room.
+     */
+    void clear() {
+        tracksByParticipant.clear();
+        availableTracks = 0;
+        primaryParticipantSid = null;
+        policy.clear();
+        // No track is left, only the previews rendering one change.
+        candidates.addAll(attachedTracks.keySet());
+        for (TwilioRemotePreview preview : candidates) {
+            rebind(preview);
+        }
+        candidates.clear();
+        scheduleEvaluation();
+    }
+
+    @Nullable
+    VideoTrack getPrimaryVideoTrack() {
+        return firstTrack(primaryParticipantSid);
+    }
+
+    int getParticipantCount() {
+        return tracksByParticipant.size();
+    }
+
+    /**
+     * Previews with a track attached. A live view, do not modify it.
+     */
+    Set<TwilioRemotePreview> getAttachedPreviews() {
+        return attachedTracks.keySet();
+    }
+
+    // ===== PREVIEWS ==============================================================================
+
+    /**
+     * Registers the preview, or moves it after its participantSid or trackId changed.
+     */
+    void bind(TwilioRemotePreview preview) {
+        String participantSid = preview.getParticipantSid();
+        if (boundParticipants.containsKey(preview)) {
+            String previousSid = boundParticipants.get(preview);
+            if (previousSid == null ? participantSid != null : !previousSid.equals(participantSid)) {
+                previewsOf(previousSid).remove(preview);
+                previewsOf(participantSid).add(preview);
+            }
+        } else {
+            previewsOf(participantSid).add(preview);
+        }
+        boundParticipants.put(preview, participantSid);
+        rebind(preview);
+        scheduleEvaluation();
+    }
+
+    void unbind(TwilioRemotePreview preview) {
+        if (!boundParticipants.containsKey(preview)) {
+            return;
+        }
+        String participantSid = boundParticipants.remove(preview);
+        Set<TwilioRemotePreview> previews = previewsOf(participantSid);
+        previews.remove(preview);
+        if (participantSid != null && previews.isEmpty()) {
+            previewsByParticipant.remove(participantSid);
+        }
+        selectedPreviews.remove(preview);
+        VideoTrack attachedTrack = attachedTracks.remove(preview);
+        if (attachedTrack != null) {
+            attachedTrack.removeRenderer(preview.getSurfaceViewRenderer());
+        }
+        scheduleEvaluation();
+    }
+
+    /**
+     * Called when the preview was laid out, scrolled, shown or hidden.
+     */
+    void onPreviewLayoutChanged(TwilioRemotePreview preview) {
+        if (policy.isLimited() && boundParticipants.containsKey(preview)) {
+            scheduleEvaluation();
+        }
+    }
+
+    /**
+     * Detaches or reattaches all previews, used while the host is in the background.
+     */
+    void setRenderingEnabled(boolean enabled) {
+        if (renderingEnabled == enabled) {
+            return;
+        }
+        renderingEnabled = enabled;
+        for (TwilioRemotePreview preview : boundParticipants.keySet()) {
+            rebind(preview);
+        }
+        scheduleEvaluation();
+    }
+
+    // ===== RENDER POLICY =========================================================================
+
+    void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+        reportedRenderedTracks = -1;
+        reportedAvailableTracks = -1;
+        scheduleEvaluation();
+    }
+
+    void setMaxRenderedTracks(int maxRenderedTracks) {
+        boolean wasLimited = policy.isLimited();
+        if (!policy.setMaxRenderedTracks(maxRenderedTracks)) {
+            return;
+        }
+        if (wasLimited && !policy.isLimited()) {
+            // Every preview renders again.
+            selectedPreviews.clear();
+            for (TwilioRemotePreview preview : boundParticipants.keySet()) {
+                rebind(preview);
+            }
+        }
+        scheduleEvaluation();
+    }
+
+    void setRenderPriority(@Nullable String priority) {
+        if (policy.setPriority(priority)) {
+            scheduleEvaluation();
+        }
+    }
+
+    void setPinnedParticipantSids(List<String> participantSids) {
+        if (policy.setPinnedParticipantSids(participantSids)) {
+            scheduleEvaluation();
+        }
+    }
+
+    void setDominantSpeakerSid(@Nullable String participantSid) {
+        if (policy.setDominantSpeakerSid(participantSid)) {
+            scheduleEvaluation();
+        }
+    }
+
+    private void scheduleEvaluation() {
+        if (!evaluationScheduled) {
+            evaluationScheduled = true;
+            uiThreadHandler.post(evaluateRunnable);
+        }
+    }
+
+    /*
+     * Selects the previews allowed to render, rebinds the ones whose selection changed and reports
+     * the number of attached renderers.
+     */
+    private void evaluate() {
+        evaluationScheduled = false;
+        if (policy.isLimited()) {
+            select();
+        }
+
+        int renderedTracks = attachedTracks.size();
+        if (listener != null
+                && (renderedTracks != reportedRenderedTracks || availableTracks != reportedAvailableTracks)) {
+            reportedRenderedTracks = renderedTracks;
+            reportedAvailableTracks = availableTracks;
+            listener.onRenderedTracksChanged(renderedTracks, availableTracks);
+        }
+    }
+
+    private void select() {
+        candidates.clear();
+        for (TwilioRemotePreview preview : boundParticipants.keySet()) {
+            if (resolve(preview) != null && isOnScreen(preview)) {
+                candidates.add(preview);
+            }
+        }
+        Collections.sort(candidates, previewComparator);
+        int selectedCount = policy.selectedCount(candidates.size());
+        for (int i = 0; i < selectedCount; ++i) {
+            nextSelection.add(candidates.get(i));
+        }
+        candidates.clear();
+
+        // Only the previews rendering now and the selected ones can change. Swap first, rebind
+        // reads the selection.
+        candidates.addAll(attachedTracks.keySet());
+        selectedPreviews.clear();
+        selectedPreviews.addAll(nextSelection);
+        for (TwilioRemotePreview preview : candidates) {
+            if (!nextSelection.remove(preview)) {
+                rebind(preview);
+            }
+        }
+        for (TwilioRemotePreview preview : nextSelection) {
+            rebind(preview);
+        }
+        nextSelection.clear();
+        candidates.clear();
+    }
+
+    private boolean isOnScreen(TwilioRemotePreview preview) {
+        return preview.isShown() && preview.getGlobalVisibleRect(visibleRect);
+    }
+
+    @Nullable
+    private String participantSidOf(TwilioRemotePreview preview) {
+        String participantSid = preview.getParticipantSid();
+        return participantSid != null ? participantSid : primaryParticipantSid;
+    }
+
+    // ===== BINDING ===============================================================================
+
+    private void onParticipantTracksChanged(String participantSid) {
+        Set<TwilioRemotePreview> previews = previewsByParticipant.get(participantSid);
+        if (previews != null) {
+            for (TwilioRemotePreview preview : previews) {
+                rebind(preview);
+            }
+        }
+        if (primaryParticipantSid == null || primaryParticipantSid.equals(participantSid)) {
+            updatePrimaryParticipant();
+        }
+        scheduleEvaluation();
+    }
+
+    private void updatePrimaryParticipant() {
+        String primarySid = null;
+        for (Map.Entry<String, LinkedHashMap<String, VideoTrack>> entry : tracksByParticipant.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                primarySid = entry.getKey();
+                break;
+            }
+        }
+        primaryParticipantSid = primarySid;
+        for (TwilioRemotePreview preview : primaryPreviews) {
+            rebind(preview);
+        }
+    }
+
+    private void rebind(TwilioRemotePreview preview) {
+        boolean selected = !policy.isLimited() || selectedPreviews.contains(preview);
+        VideoTrack videoTrack = renderingEnabled && selected ? resolve(preview) : null;
+        VideoTrack attachedTrack = attachedTracks.get(preview);
+        if (videoTrack == attachedTrack) {
+            return;
+        }
+        if (attachedTrack != null) {
+            attachedTrack.removeRenderer(preview.getSurfaceViewRenderer());
+        }
+        if (videoTrack != null) {
+            videoTrack.addRenderer(preview.getSurfaceViewRenderer());
+            attachedTracks.put(preview, videoTrack);
+        } else {
+            attachedTracks.remove(preview);
+        }
+    }
+
+    @Nullable
+    private VideoTrack resolve(TwilioRemotePreview preview) {
+        String participantSid = preview.getParticipantSid();
+        if (participantSid == null) {
+            return firstTrack(primaryParticipantSid);
+        }
+        String trackId = preview.getTrackId();
+        if (trackId == null) {
+            return firstTrack(participantSid);
+        }
+        LinkedHashMap<String, VideoTrack> tracks = tracksByParticipant.get(participantSid);
+        return tracks != null ? tracks.get(trackId) : null;
+    }
+
+    @Nullable
+    private VideoTrack firstTrack(@Nullable String participantSid) {
+        if (participantSid == null) {
+            return null;
+        }
+        LinkedHashMap<String, VideoTrack> tracks = tracksByParticipant.get(participantSid);
+        if (tracks == null) {
+            return null;
+        }
+        Iterator<VideoTrack> iterator = tracks.values().iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    private Set<TwilioRemotePreview> previewsOf(@Nullable String participantSid) {
+        if (participantSid == null) {
+            return primaryPreviews;
+        }
+        Set<TwilioRemotePreview> previews = previewsByParticipant.get(participantSid);
+        if (previews == null) {
+            previews = weakSet();
+            previewsByParticipant.put(participantSid, previews);
+        }
+        return previews;
+    }
+
+    private static Set<TwilioRemotePreview> weakSet() {
+        return Collections.newSetFromMap(new WeakHashMap<TwilioRemotePreview, Boolean>());
+    }
+}
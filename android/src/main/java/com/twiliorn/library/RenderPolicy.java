@@ -0,0 +1,139 @@
+package com.twiliorn.library;
+
+import android.support.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Decides which remote participants are worth rendering when at most maxRenderedTracks previews
+ * may have a renderer attached.
+ *
+ * Participants are ranked by recent activity: joining, publishing or enabling video, or being
+ * reported as dominant speaker. The "pinned" priority ranks pinned participants first, the
+ * "dominantSpeaker" priority ranks the dominant speaker first and then the pinned ones.
+ */
+class RenderPolicy implements Comparator<String> {
+
+    static final String PRIORITY_RECENCY          = "recency";
+    static final String PRIORITY_PINNED           = "pinned";
+    static final String PRIORITY_DOMINANT_SPEAKER = "dominantSpeaker";
+
+    private final HashMap<String, Long> lastActivity          = new HashMap<>();
+    private final List<String>          pinnedParticipantSids = new ArrayList<>();
+    private int    maxRenderedTracks;
+    private String priority = PRIORITY_RECENCY;
+    private String dominantSpeakerSid;
+    private long   activityCounter;
+
+    /**
+     * Whether the number of rendered tracks is capped at all.
+     */
+    boolean isLimited() {
+        return maxRenderedTracks > 0;
+    }
+
+    int getMaxRenderedTracks() {
+        return maxRenderedTracks;
+    }
+
+    /**
+     * How many of that many ranked candidates may render, the first ones.
+     */
+    int selectedCount(int candidates) {
+        return isLimited() ? Math.min(candidates, maxRenderedTracks) : candidates;
+    }
+
+    boolean setMaxRenderedTracks(int maxRenderedTracks) {
+        maxRenderedTracks = Math.max(0, maxRenderedTracks);
+        if (this.maxRenderedTracks == maxRenderedTracks) {
+            return false;
+        }
+        this.maxRenderedTracks = maxRenderedTracks;
+        return true;
+    }
+
+    boolean setPriority(@Nullable String priority) {
+        if (!PRIORITY_PINNED.equals(priority) && !PRIORITY_DOMINANT_SPEAKER.equals(priority)) {
+            priority = PRIORITY_RECENCY;
+        }
+        if (this.priority.equals(priority)) {
+            return false;
+        }
+        this.priority = priority;
+        return true;
+    }
+
+    boolean setPinnedParticipantSids(List<String> participantSids) {
+        if (pinnedParticipantSids.equals(participantSids)) {
+            return false;
+        }
+        pinnedParticipantSids.clear();
+        pinnedParticipantSids.addAll(participantSids);
+        return true;
+    }
+
+    boolean setDominantSpeakerSid(@Nullable String participantSid) {
+        if (dominantSpeakerSid == null ? participantSid == null : dominantSpeakerSid.equals(participantSid)) {
+            return false;
+        }
+        dominantSpeakerSid = participantSid;
+        if (participantSid != null) {
+            markActive(participantSid);
+        }
+        return true;
+    }
+
+    void markActive(String participantSid) {
+        lastActivity.put(participantSid, ++activityCounter);
+    }
+
+    void forget(String participantSid) {
+        lastActivity.remove(participantSid);
+    }
+
+    void clear() {
+        lastActivity.clear();
+    }
+
+    /**
+     * Orders participant SIDs from most to least worth rendering. A null SID, a preview without
+     * a participant, ranks last.
+     */
+    @Override
+    public int compare(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : 1) : -1;
+        }
+        if (PRIORITY_DOMINANT_SPEAKER.equals(priority)) {
+            int result = compareFlags(a.equals(dominantSpeakerSid), b.equals(dominantSpeakerSid));
+            if (result != 0) {
+                return result;
+            }
+        }
+        if (!PRIORITY_RECENCY.equals(priority)) {
+            int result = comparePinned(a, b);
+            if (result != 0) {
+                return result;
+            }
+        }
+        long activityA = lastActivity.containsKey(a) ? lastActivity.get(a) : 0L;
+        long activityB = lastActivity.containsKey(b) ? lastActivity.get(b) : 0L;
+        return activityA == activityB ? 0 : (activityA > activityB ? -1 : 1);
+    }
+
+    private int comparePinned(String a, String b) {
+        int indexA = pinnedParticipantSids.indexOf(a);
+        int indexB = pinnedParticipantSids.indexOf(b);
+        if (indexA < 0 || indexB < 0) {
+            return compareFlags(indexA >= 0, indexB >= 0);
+        }
+        return indexA - indexB;
+    }
+
+    private static int compareFlags(boolean a, boolean b) {
+        return a == b ? 0 : (a ? -1 : 1);
+    }
+}
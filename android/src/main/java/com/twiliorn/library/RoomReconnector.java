@@ -0,0 +1,208 @@
+package com.twiliorn.library;
+
+import java.util.Random;
+
+/**
+ * Reconnects a room that dropped because of a network error, retrying with jittered exponential
+ * backoff.
+ *
+ * The reconnector knows nothing about Room itself: the owner reports the room's connection
+ * events with the TwilioException code and a {@link Connector} starts a new connection, so the
+ * state machine runs on a plain JVM against a fake room. All methods must be called on the
+ * thread the {@link Scheduler} runs its callbacks on, the UI thread in the plugin.
+ */
+class RoomReconnector {
+
+    static final long DEFAULT_BASE_DELAY_MS = 1000L;
+    static final long DEFAULT_MAX_DELAY_MS  = 30000L;
+    static final int  DEFAULT_MAX_ATTEMPTS  = 8;
+
+    /*
+     * TwilioException codes.
+     */
+    static final int NO_ERROR                          = 0;
+    static final int ACCESS_TOKEN_INVALID              = 20101;
+    static final int ACCESS_TOKEN_EXPIRED              = 20104;
+    static final int SIGNALING_CONNECTION_ERROR        = 53000;
+    static final int SIGNALING_CONNECTION_DISCONNECTED = 53001;
+    static final int SIGNALING_CONNECTION_TIMEOUT      = 53002;
+    static final int ROOM_COMPLETED                    = 53118;
+    static final int PARTICIPANT_DUPLICATE_IDENTITY    = 53205;
+    static final int MEDIA_CONNECTION_ERROR            = 53405;
+
+    static final int STATE_IDLE         = 0;
+    static final int STATE_CONNECTED    = 1;
+    static final int STATE_WAITING      = 2;
+    static final int STATE_RECONNECTING = 3;
+
+    interface Connector {
+        /**
+         * Connects the room again. The outcome is reported through {@link #onConnected()} or
+         * {@link #onConnectFailure(int)}.
+         */
+        void connect();
+    }
+
+    interface Scheduler {
+        long now();
+
+        void postDelayed(Runnable runnable, long delayMs);
+
+        void removeCallbacks(Runnable runnable);
+    }
+
+    interface Listener {
+        /**
+         * Called before each attempt is scheduled, attempt counts from 1.
+         */
+        void onReconnecting(int attempt, long delayMs, int errorCode);
+
+        void onReconnected(int attempts, long durationMs);
+
+        /**
+         * Called when the error cannot be recovered or the attempts ran out. The room stays
+         * disconnected.
+         */
+        void onReconnectFailed(int attempts, long durationMs, int errorCode);
+    }
+
+    private final Connector connector;
+    private final Scheduler scheduler;
+    private final Listener  listener;
+    private final Random    random;
+    private final Runnable  connect = new Runnable() {
+        @Override
+        public void run() {
+            state = STATE_RECONNECTING;
+            connector.connect();
+        }
+    };
+
+    private long baseDelayMs = DEFAULT_BASE_DELAY_MS;
+    private long maxDelayMs  = DEFAULT_MAX_DELAY_MS;
+    private int  maxAttempts = DEFAULT_MAX_ATTEMPTS;
+
+    private int  state = STATE_IDLE;
+    private int  attempts;
+    private long disconnectedAt;
+
+    RoomReconnector(Connector connector, Scheduler scheduler, Listener listener) {
+        this(connector, scheduler, listener, new Random());
+    }
+
+    RoomReconnector(Connector connector, Scheduler scheduler, Listener listener, Random random) {
+        this.connector = connector;
+        this.scheduler = scheduler;
+        this.listener = listener;
+        this.random = random;
+    }
+
+    void setBackoff(long baseDelayMs, long maxDelayMs, int maxAttempts) {
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxAttempts = maxAttempts;
+    }
+
+    int getState() {
+        return state;
+    }
+
+    boolean isReconnecting() {
+        return state == STATE_WAITING || state == STATE_RECONNECTING;
+    }
+
+    /**
+     * Whether a room that failed with the given code may come back by connecting again. Only
+     * network errors do; a bad token, a completed room or being replaced by the same identity
+     * fail the same way on every attempt.
+     */
+    static boolean isRecoverable(int errorCode) {
+        switch (errorCode) {
+            case SIGNALING_CONNECTION_ERROR:
+            case SIGNALING_CONNECTION_DISCONNECTED:
+            case SIGNALING_CONNECTION_TIMEOUT:
+            case MEDIA_CONNECTION_ERROR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * The room connected. Returns true if it was a reconnect attempt.
+     */
+    boolean onConnected() {
+        boolean reconnected = state == STATE_RECONNECTING;
+        if (reconnected) {
+            listener.onReconnected(attempts, scheduler.now() - disconnectedAt);
+        }
+        scheduler.removeCallbacks(connect);
+        state = STATE_CONNECTED;
+        attempts = 0;
+        return reconnected;
+    }
+
+    /**
+     * The connected room dropped. Returns true if a reconnect is scheduled, false if the room
+     * stays disconnected, e.g. after a local disconnect that has no error.
+     */
+    boolean onDisconnected(int errorCode) {
+        if (state != STATE_CONNECTED || !isRecoverable(errorCode)) {
+            stop();
+            return false;
+        }
+        attempts = 0;
+        disconnectedAt = scheduler.now();
+        scheduleAttempt(errorCode);
+        return true;
+    }
+
+    /**
+     * Connecting failed. Returns true if the failure belonged to a reconnect attempt and was
+     * handled, by scheduling the next attempt or reporting onReconnectFailed. Other failures, e.g.
+     * of a room switch, leave the state alone: the connected room may still drop and come back.
+     */
+    boolean onConnectFailure(int errorCode) {
+        if (state != STATE_RECONNECTING) {
+            return false;
+        }
+        if (isRecoverable(errorCode) && attempts < maxAttempts) {
+            scheduleAttempt(errorCode);
+        } else {
+            int failedAttempts = attempts;
+            stop();
+            listener.onReconnectFailed(failedAttempts, scheduler.now() - disconnectedAt, errorCode);
+        }
+        return true;
+    }
+
+    /**
+     * Gives up reconnecting, e.g. because the user hung up.
+     */
+    void stop() {
+        scheduler.removeCallbacks(connect);
+        state = STATE_IDLE;
+        attempts = 0;
+    }
+
+    /*
+     * Equal jitter: half of the exponential delay is fixed, the other half random, so attempts
+     * of many clients dropped by the same outage spread out without retrying immediately.
+     */
+    long delayForAttempt(int attempt) {
+        long delayMs = baseDelayMs << Math.min(attempt - 1, 16);
+        if (delayMs <= 0L || delayMs > maxDelayMs) {
+            delayMs = maxDelayMs;
+        }
+        long half = delayMs / 2L;
+        return half + (long) (random.nextDouble() * (delayMs - half));
+    }
+
+    private void scheduleAttempt(int errorCode) {
+        ++attempts;
+        long delayMs = delayForAttempt(attempts);
+        state = STATE_WAITING;
+        listener.onReconnecting(attempts, delayMs, errorCode);
+        scheduler.postDelayed(connect, delayMs);
+    }
+}
@@ -0,0 +1,433 @@
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.AudioTrack;
+import com.twilio.video.LocalAudioTrack;
+import com.twilio.video.LocalVideoTrack;
+import com.twilio.video.Participant;
+import com.twilio.video.Room;
+import com.twilio.video.VideoTrack;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The room of a call session as data: its participants, their tracks and whether each track is
+ * enabled, with a version that grows with every change.
+ *
+ * JS pulls a {@link #snapshot()} when it starts caring, e.g. a component mounting mid-call, and
+ * then applies the changes following that version instead of replaying the room's events. The
+ * last {@link #MAX_CHANGES} changes are kept for {@link #changesSince(long)}; a client further
+ * behind takes a new snapshot. The listener gets the changes of a UI loop iteration at once.
+ *
+ * Changes are made on the UI thread, which publishes an immutable copy of the state after each
+ * one. {@link #snapshot()}, {@link #participant(String)} and {@link #localTracks()} read that copy
+ * from any thread without locking, so synchronous reads from JS never wait on the listeners
+ * updating the store, nor hold them up.
+ */
+class RoomStateStore {
+
+    static final String OP_ROOM_CONNECTED           = "roomConnected";
+    static final String OP_ROOM_DISCONNECTED        = "roomDisconnected";
+    static final String OP_PARTICIPANT_CONNECTED    = "participantConnected";
+    static final String OP_PARTICIPANT_DISCONNECTED = "participantDisconnected";
+    static final String OP_TRACK_ADDED              = "trackAdded";
+    static final String OP_TRACK_REMOVED            = "trackRemoved";
+    static final String OP_TRACK_ENABLED            = "trackEnabled";
+
+    static final String KIND_AUDIO = "audio";
+    static final String KIND_VIDEO = "video";
+
+    private static final int MAX_CHANGES = 256;
+
+    interface Listener {
+        void onRoomStateChanged(WritableMap changes);
+    }
+
+    /*
+     * The state classes are immutable, a change replaces them.
+     */
+    private static class TrackState {
+        final String  trackId;
+        final String  kind;
+        final boolean enabled;
+
+        TrackState(String trackId, String kind, boolean enabled) {
+            this.trackId = trackId;
+            this.kind = kind;
+            this.enabled = enabled;
+        }
+    }
+
+    private static class ParticipantState {
+        final String                  sid;
+        final String                  identity;
+        final Map<String, TrackState> tracks;
+
+        ParticipantState(String sid, String identity, Map<String, TrackState> tracks) {
+            this.sid = sid;
+            this.identity = identity;
+            this.tracks = tracks;
+        }
+
+        ParticipantState withTrack(TrackState track) {
+            LinkedHashMap<String, TrackState> tracks = new LinkedHashMap<>(this.tracks);
+            tracks.put(track.trackId, track);
+            return new ParticipantState(sid, identity, Collections.unmodifiableMap(tracks));
+        }
+
+        ParticipantState withoutTrack(String trackId) {
+            LinkedHashMap<String, TrackState> tracks = new LinkedHashMap<>(this.tracks);
+            tracks.remove(trackId);
+            return new ParticipantState(sid, identity, Collections.unmodifiableMap(tracks));
+        }
+    }
+
+    private static class State {
+        final long                          version;
+        final String                        roomName;
+        final String                        roomSid;
+        final Map<String, ParticipantState> participants;
+
+        State(long version, String roomName, String roomSid, Map<String, ParticipantState> participants) {
+            this.version = version;
+            this.roomName = roomName;
+            this.roomSid = roomSid;
+            this.participants = participants;
+        }
+    }
+
+    /*
+     * The local tracks, not versioned: only their current state matters to JS.
+     */
+    private static class LocalTracksState {
+        final String  audioTrackId;
+        final boolean audioEnabled;
+        final String  videoTrackId;
+        final boolean videoEnabled;
+        final boolean backCamera;
+
+        LocalTracksState(String audioTrackId, boolean audioEnabled, String videoTrackId, boolean videoEnabled,
+                         boolean backCamera) {
+            this.audioTrackId = audioTrackId;
+            this.audioEnabled = audioEnabled;
+            this.videoTrackId = videoTrackId;
+            this.videoEnabled = videoEnabled;
+            this.backCamera = backCamera;
+        }
+    }
+
+    /*
+     * One change, the fields not concerned by the op are null.
+     */
+    private static class Change {
+        final long    version;
+        final String  op;
+        final String  roomName;
+        final String  roomSid;
+        final String  participantSid;
+        final String  identity;
+        final String  trackId;
+        final String  kind;
+        final boolean enabled;
+
+        Change(long version, String op, String roomName, String roomSid, String participantSid,
+               String identity, String trackId, String kind, boolean enabled) {
+            this.version = version;
+            this.op = op;
+            this.roomName = roomName;
+            this.roomSid = roomSid;
+            this.participantSid = participantSid;
+            this.identity = identity;
+            this.trackId = trackId;
+            this.kind = kind;
+            this.enabled = enabled;
+        }
+    }
+
+    private final LinkedHashMap<String, ParticipantState> participants    = new LinkedHashMap<>();
+    private final ArrayDeque<Change>                      changes         = new ArrayDeque<>();
+    private final Handler                                 uiThreadHandler = new Handler(Looper.getMainLooper());
+    private final Runnable notifyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            notifyScheduled = false;
+            notifyListener();
+        }
+    };
+
+    private String   roomName;
+    private String   roomSid;
+    private long     version;
+    private long     notifiedVersion;
+    private boolean  notifyScheduled;
+    private Listener listener;
+
+    private volatile State            state       = new State(0L, null, null, Collections.<String, ParticipantState>emptyMap());
+    private volatile LocalTracksState localTracks = new LocalTracksState(null, false, null, false, false);
+
+    void setListener(@Nullable Listener listener) {
+        this.listener = listener;
+        notifiedVersion = version;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    // ===== CHANGES ===============================================================================
+
+    /**
+     * Starts over with the room's name and no participant, they are added one by one.
+     */
+    void roomConnected(Room room) {
+        participants.clear();
+        roomName = room.getName();
+        roomSid = room.getSid();
+        record(OP_ROOM_CONNECTED, null, null, null, null, false);
+    }
+
+    void roomDisconnected() {
+        if (roomSid == null && participants.isEmpty()) {
+            return;
+        }
+        participants.clear();
+        roomName = null;
+        roomSid = null;
+        record(OP_ROOM_DISCONNECTED, null, null, null, null, false);
+    }
+
+    /**
+     * Adds the participant with the tracks it already publishes.
+     */
+    void participantConnected(Participant participant) {
+        String participantSid = participant.getSid();
+        if (participants.containsKey(participantSid)) {
+            return;
+        }
+        participants.put(participantSid, new ParticipantState(participantSid, participant.getIdentity(),
+                                                              Collections.<String, TrackState>emptyMap()));
+        record(OP_PARTICIPANT_CONNECTED, participantSid, participant.getIdentity(), null, null, false);
+        for (AudioTrack audioTrack : participant.getAudioTracks()) {
+            trackAdded(participantSid, audioTrack.getTrackId(), KIND_AUDIO, audioTrack.isEnabled());
+        }
+        for (VideoTrack videoTrack : participant.getVideoTracks()) {
+            trackAdded(participantSid, videoTrack.getTrackId(), KIND_VIDEO, videoTrack.isEnabled());
+        }
+    }
+
+    void participantDisconnected(String participantSid) {
+        if (participants.remove(participantSid) != null) {
+            record(OP_PARTICIPANT_DISCONNECTED, participantSid, null, null, null, false);
+        }
+    }
+
+    void trackAdded(String participantSid, String trackId, String kind, boolean enabled) {
+        ParticipantState participant = participants.get(participantSid);
+        if (participant == null || participant.tracks.containsKey(trackId)) {
+            return;
+        }
+        participants.put(participantSid, participant.withTrack(new TrackState(trackId, kind, enabled)));
+        record(OP_TRACK_ADDED, participantSid, null, trackId, kind, enabled);
+    }
+
+    void trackRemoved(String participantSid, String trackId) {
+        ParticipantState participant = participants.get(participantSid);
+        if (participant != null && participant.tracks.containsKey(trackId)) {
+            participants.put(participantSid, participant.withoutTrack(trackId));
+            record(OP_TRACK_REMOVED, participantSid, null, trackId, null, false);
+        }
+    }
+
+    void trackEnabled(String participantSid, String trackId, boolean enabled) {
+        ParticipantState participant = participants.get(participantSid);
+        TrackState track = participant != null ? participant.tracks.get(trackId) : null;
+        if (track == null || track.enabled == enabled) {
+            return;
+        }
+        participants.put(participantSid, participant.withTrack(new TrackState(trackId, track.kind, enabled)));
+        record(OP_TRACK_ENABLED, participantSid, null, trackId, track.kind, enabled);
+    }
+
+    private void record(String op, String participantSid, String identity, String trackId, String kind,
+                        boolean enabled) {
+        ++version;
+        changes.addLast(new Change(version, op, roomName, roomSid, participantSid, identity, trackId, kind,
+                                   enabled));
+        if (changes.size() > MAX_CHANGES) {
+            changes.removeFirst();
+        }
+        state = new State(version, roomName, roomSid,
+                          Collections.unmodifiableMap(new LinkedHashMap<>(participants)));
+        if (listener != null && !notifyScheduled) {
+            notifyScheduled = true;
+            uiThreadHandler.post(notifyRunnable);
+        }
+    }
+
+    private void notifyListener() {
+        if (listener == null || notifiedVersion == version) {
+            return;
+        }
+        WritableMap changes = changesSince(notifiedVersion);
+        if (changes == null) {
+            // More than MAX_CHANGES in one iteration, listeners resync from a snapshot.
+            changes = new WritableNativeMap();
+            changes.putDouble("fromVersion", notifiedVersion);
+            changes.putDouble("version", version);
+            changes.putNull("changes");
+        }
+        notifiedVersion = version;
+        listener.onRoomStateChanged(changes);
+    }
+
+    /**
+     * Records the local tracks as they are now, call after any of them changed.
+     */
+    void localTracksChanged(@Nullable LocalAudioTrack localAudioTrack, @Nullable LocalVideoTrack localVideoTrack,
+                            boolean backCamera) {
+        localTracks = new LocalTracksState(
+                localAudioTrack != null ? localAudioTrack.getTrackId() : null,
+                localAudioTrack != null && localAudioTrack.isEnabled(),
+                localVideoTrack != null ? localVideoTrack.getTrackId() : null,
+                localVideoTrack != null && localVideoTrack.isEnabled(),
+                backCamera);
+    }
+
+    // ===== QUERIES ===============================================================================
+
+    /**
+     * {version, room: {name, sid} or null, participants: {sid: {sid, identity, tracks: {trackId:
+     * {trackId, kind, enabled}}}}}, participants and tracks in the order they came. Any thread.
+     */
+    WritableMap snapshot() {
+        State state = this.state;
+        WritableMap snapshot = new WritableNativeMap();
+        snapshot.putDouble("version", state.version);
+        if (state.roomSid != null) {
+            WritableMap room = new WritableNativeMap();
+            room.putString("name", state.roomName);
+            room.putString("sid", state.roomSid);
+            snapshot.putMap("room", room);
+        } else {
+            snapshot.putNull("room");
+        }
+        WritableMap participantsMap = new WritableNativeMap();
+        for (ParticipantState participant : state.participants.values()) {
+            participantsMap.putMap(participant.sid, toMap(participant));
+        }
+        snapshot.putMap("participants", participantsMap);
+        return snapshot;
+    }
+
+    /**
+     * {sid, identity, tracks} as in the snapshot, or null for a participant not in the room. Any
+     * thread.
+     */
+    @Nullable
+    WritableMap participant(String participantSid) {
+        ParticipantState participant = state.participants.get(participantSid);
+        return participant != null ? toMap(participant) : null;
+    }
+
+    /**
+     * {audio: {trackId, enabled} or null, video: {trackId, enabled} or null, isBackCamera}. Video
+     * is null while the app is in the background, the camera is released. Any thread.
+     */
+    WritableMap localTracks() {
+        LocalTracksState localTracks = this.localTracks;
+        WritableMap map = new WritableNativeMap();
+        if (localTracks.audioTrackId != null) {
+            WritableMap audio = new WritableNativeMap();
+            audio.putString("trackId", localTracks.audioTrackId);
+            audio.putBoolean("enabled", localTracks.audioEnabled);
+            map.putMap("audio", audio);
+        } else {
+            map.putNull("audio");
+        }
+        if (localTracks.videoTrackId != null) {
+            WritableMap video = new WritableNativeMap();
+            video.putString("trackId", localTracks.videoTrackId);
+            video.putBoolean("enabled", localTracks.videoEnabled);
+            map.putMap("video", video);
+        } else {
+            map.putNull("video");
+        }
+        map.putBoolean("isBackCamera", localTracks.backCamera);
+        return map;
+    }
+
+    /**
+     * {fromVersion, version, changes: [{version, op, ...}]} taking a snapshot at fromVersion to the
+     * current version, or null when the changes after fromVersion are no longer kept. UI thread.
+     */
+    @Nullable
+    WritableMap changesSince(long fromVersion) {
+        if (fromVersion > version) {
+            return null;
+        }
+        if (fromVersion < version && (changes.isEmpty() || changes.peekFirst().version > fromVersion + 1)) {
+            return null;
+        }
+        WritableArray changesArray = new WritableNativeArray();
+        for (Change change : changes) {
+            if (change.version > fromVersion) {
+                changesArray.pushMap(toMap(change));
+            }
+        }
+        WritableMap result = new WritableNativeMap();
+        result.putDouble("fromVersion", fromVersion);
+        result.putDouble("version", version);
+        result.putArray("changes", changesArray);
+        return result;
+    }
+
+    private static WritableMap toMap(ParticipantState participant) {
+        WritableMap participantMap = new WritableNativeMap();
+        participantMap.putString("sid", participant.sid);
+        participantMap.putString("identity", participant.identity);
+        WritableMap tracksMap = new WritableNativeMap();
+        for (TrackState track : participant.tracks.values()) {
+            WritableMap trackMap = new WritableNativeMap();
+            trackMap.putString("trackId", track.trackId);
+            trackMap.putString("kind", track.kind);
+            trackMap.putBoolean("enabled", track.enabled);
+            tracksMap.putMap(track.trackId, trackMap);
+        }
+        participantMap.putMap("tracks", tracksMap);
+        return participantMap;
+    }
+
+    private static WritableMap toMap(Change change) {
+        WritableMap map = new WritableNativeMap();
+        map.putDouble("version", change.version);
+        map.putString("op", change.op);
+        if (change.op.equals(OP_ROOM_CONNECTED)) {
+            map.putString("roomName", change.roomName);
+            map.putString("roomSid", change.roomSid);
+        }
+        if (change.participantSid != null) {
+            map.putString("participantSid", change.participantSid);
+        }
+        if (change.identity != null) {
+            map.putString("identity", change.identity);
+        }
+        if (change.trackId != null) {
+            map.putString("trackId", change.trackId);
+        }
+        if (change.kind != null) {
+            map.putString("kind", change.kind);
+            map.putBoolean("enabled", change.enabled);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,416 @@
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.twilio.video.AudioTrackStats;
+import com.twilio.video.LocalAudioTrackStats;
+import com.twilio.video.LocalVideoTrackStats;
+import com.twilio.video.Room;
+import com.twilio.video.StatsListener;
+import com.twilio.video.StatsReport;
+import com.twilio.video.VideoTrackStats;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Polls the stats of a room and turns the SDK's running counters into rates: bitrates, packet
+ * loss, round trip time, jitter and frame rates, summed or averaged over all tracks.
+ *
+ * Polling and aggregation run on the collector's own thread. The last {@link #HISTORY} samples
+ * are kept in a ring of primitive arrays, and the per-stream counters are updated in place, so a
+ * poll allocates little besides what the SDK reports. Each sample, with the averages over the
+ * ring, is handed to the listener on the UI thread; the ring can be pulled with
+ * {@link #getHistory(Promise)}. start, stop and setInterval must be called on the UI thread.
+ */
+class StatsCollector {
+
+    private static final String TAG = "StatsCollector";
+
+    static final int HISTORY = 60;
+
+    /*
+     * A poll the SDK did not answer within this many intervals is given up, e.g. for a room
+     * that disconnected meanwhile.
+     */
+    private static final int POLL_TIMEOUT_INTERVALS = 3;
+
+    interface Listener {
+        void onStats(WritableMap stats);
+    }
+
+    /*
+     * The previous totals of one RTP stream, keyed by SSRC. A local track has one stream per
+     * peer connection.
+     */
+    private static class Counters {
+        long bytes;
+        long packets;
+        long packetsLost;
+        long poll;
+    }
+
+    private final Listener listener;
+    private final Handler  uiThreadHandler = new Handler(Looper.getMainLooper());
+
+    private HandlerThread statsThread;
+    private Handler       statsHandler;
+
+    /*
+     * Written on the UI thread, read on the stats thread.
+     */
+    private volatile Room room;
+    private volatile long intervalMs;
+    private volatile int  generation;
+
+    /*
+     * Stats thread only.
+     */
+    private final HashMap<String, Counters> counters = new HashMap<>();
+    private final Counters                  scratch  = new Counters();
+    private final long[]  times              = new long[HISTORY];
+    private final float[] sendBitrates       = new float[HISTORY];
+    private final float[] receiveBitrates    = new float[HISTORY];
+    private final float[] sendPacketLoss     = new float[HISTORY];
+    private final float[] receivePacketLoss  = new float[HISTORY];
+    private final float[] roundTripTimes     = new float[HISTORY];
+    private final float[] jitters            = new float[HISTORY];
+    private final float[] sentFrameRates     = new float[HISTORY];
+    private final float[] receivedFrameRates = new float[HISTORY];
+    private int  head;
+    private int  size;
+    private long poll;
+    private long previousPollTime;
+    private long pollRequestTime;
+
+    private final Runnable pollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            poll();
+        }
+    };
+
+    StatsCollector(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Polls every intervalMs while a room is set, 0 stops polling.
+     */
+    void setInterval(int intervalMs) {
+        this.intervalMs = intervalMs;
+        restart();
+    }
+
+    /**
+     * Starts polling the room, forgetting the samples of the previous one.
+     */
+    void start(Room room) {
+        this.room = room;
+        restart();
+    }
+
+    void stop() {
+        this.room = null;
+        ++generation;
+        if (statsHandler != null) {
+            statsHandler.removeCallbacks(pollRunnable);
+        }
+    }
+
+    void release() {
+        stop();
+        if (statsThread != null) {
+            statsThread.quitSafely();
+            statsThread = null;
+            statsHandler = null;
+        }
+    }
+
+    private void restart() {
+        final int generation = ++this.generation;
+        if (room == null || intervalMs <= 0) {
+            if (statsHandler != null) {
+                statsHandler.removeCallbacks(pollRunnable);
+            }
+            return;
+        }
+        stats().removeCallbacks(pollRunnable);
+        stats().post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == StatsCollector.this.generation) {
+                    reset();
+                    poll();
+                }
+            }
+        });
+    }
+
+    private Handler stats() {
+        if (statsHandler == null) {
+            statsThread = new HandlerThread(TAG);
+            statsThread.start();
+            statsHandler = new Handler(statsThread.getLooper());
+        }
+        return statsHandler;
+    }
+
+    // ===== STATS THREAD ==========================================================================
+
+    private void reset() {
+        counters.clear();
+        head = 0;
+        size = 0;
+        previousPollTime = 0L;
+        pollRequestTime = 0L;
+    }
+
+    private void poll() {
+        final Room room = this.room;
+        long intervalMs = this.intervalMs;
+        if (room == null || intervalMs <= 0) {
+            return;
+        }
+        // Keeps a single poll scheduled, also when a restart overlaps a running poll.
+        statsHandler.removeCallbacks(pollRunnable);
+        statsHandler.postDelayed(pollRunnable, intervalMs);
+
+        long now = SystemClock.elapsedRealtime();
+        if (pollRequestTime > 0L && now - pollRequestTime < POLL_TIMEOUT_INTERVALS * intervalMs) {
+            // The previous poll is still out, the SDK is busy.
+            return;
+        }
+        pollRequestTime = now;
+        final int generation = this.generation;
+        room.getStats(new StatsListener() {
+            @Override
+            public void onStats(List<StatsReport> statsReports) {
+                // Called on this thread, it asked.
+                if (generation != StatsCollector.this.generation) {
+                    return;
+                }
+                pollRequestTime = 0L;
+                aggregate(statsReports, generation);
+            }
+        });
+    }
+
+    private void aggregate(List<StatsReport> statsReports, final int generation) {
+        long now = SystemClock.elapsedRealtime();
+        float elapsedSeconds = previousPollTime > 0L ? (now - previousPollTime) / 1000.0F : 0.0F;
+        previousPollTime = now;
+        ++poll;
+
+        long bytesSent = 0L;
+        long packetsSent = 0L;
+        long packetsLostSending = 0L;
+        long bytesReceived = 0L;
+        long packetsReceived = 0L;
+        long packetsLostReceiving = 0L;
+        long roundTripTimeSum = 0L;
+        int  roundTripTimeCount = 0;
+        long jitterSum = 0L;
+        int  jitterCount = 0;
+        int  sentFrameRate = 0;
+        int  receivedFrameRateSum = 0;
+        int  receivedFrameRateCount = 0;
+
+        for (StatsReport statsReport : statsReports) {
+            for (LocalAudioTrackStats stats : statsReport.getLocalAudioTrackStats()) {
+                Counters delta = delta(stats.ssrc, stats.bytesSent, stats.packetsSent, stats.packetsLost);
+                if (delta != null) {
+                    bytesSent += delta.bytes;
+                    packetsSent += delta.packets;
+                    packetsLostSending += delta.packetsLost;
+                }
+                if (stats.roundTripTime > 0L) {
+                    roundTripTimeSum += stats.roundTripTime;
+                    ++roundTripTimeCount;
+                }
+            }
+            for (LocalVideoTrackStats stats : statsReport.getLocalVideoTrackStats()) {
+                Counters delta = delta(stats.ssrc, stats.bytesSent, stats.packetsSent, stats.packetsLost);
+                if (delta != null) {
+                    bytesSent += delta.bytes;
+                    packetsSent += delta.packets;
+                    packetsLostSending += delta.packetsLost;
+                }
+                if (stats.roundTripTime > 0L) {
+                    roundTripTimeSum += stats.roundTripTime;
+                    ++roundTripTimeCount;
+                }
+                sentFrameRate = Math.max(sentFrameRate, stats.frameRate);
+            }
+            for (AudioTrackStats stats : statsReport.getAudioTrackStats()) {
+                Counters delta = delta(stats.ssrc, stats.bytesReceived, stats.packetsReceived, stats.packetsLost);
+                if (delta != null) {
+                    bytesReceived += delta.bytes;
+                    packetsReceived += delta.packets;
+                    packetsLostReceiving += delta.packetsLost;
+                }
+                jitterSum += stats.jitter;
+                ++jitterCount;
+            }
+            for (VideoTrackStats stats : statsReport.getVideoTrackStats()) {
+                Counters delta = delta(stats.ssrc, stats.bytesReceived, stats.packetsReceived, stats.packetsLost);
+                if (delta != null) {
+                    bytesReceived += delta.bytes;
+                    packetsReceived += delta.packets;
+                    packetsLostReceiving += delta.packetsLost;
+                }
+                receivedFrameRateSum += stats.frameRate;
+                ++receivedFrameRateCount;
+            }
+        }
+        forgetStreamsNotSeen();
+
+        if (elapsedSeconds <= 0.0F) {
+            // First poll, the totals are a baseline.
+            return;
+        }
+        int index = (head + size) % HISTORY;
+        if (size < HISTORY) {
+            ++size;
+        } else {
+            head = (head + 1) % HISTORY;
+        }
+        times[index] = System.currentTimeMillis();
+        sendBitrates[index] = bytesSent * 8 / 1000.0F / elapsedSeconds;
+        receiveBitrates[index] = bytesReceived * 8 / 1000.0F / elapsedSeconds;
+        sendPacketLoss[index] = ratio(packetsLostSending, packetsSent + packetsLostSending);
+        receivePacketLoss[index] = ratio(packetsLostReceiving, packetsReceived + packetsLostReceiving);
+        roundTripTimes[index] = roundTripTimeCount > 0 ? (float) roundTripTimeSum / roundTripTimeCount : 0.0F;
+        jitters[index] = jitterCount > 0 ? (float) jitterSum / jitterCount : 0.0F;
+        sentFrameRates[index] = sentFrameRate;
+        receivedFrameRates[index] = receivedFrameRateCount > 0
+                ? (float) receivedFrameRateSum / receivedFrameRateCount : 0.0F;
+
+        final WritableMap stats = sampleToMap(index);
+        stats.putMap("average", averageToMap());
+        uiThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (generation == StatsCollector.this.generation) {
+                    listener.onStats(stats);
+                }
+            }
+        });
+    }
+
+    /*
+     * Updates the stream's counters to the new totals and returns them holding the increase
+     * instead, or null for a stream seen for the first time. Valid until the next call.
+     */
+    @Nullable
+    private Counters delta(String ssrc, long bytes, long packets, long packetsLost) {
+        Counters previous = counters.get(ssrc);
+        if (previous == null) {
+            previous = new Counters();
+            previous.bytes = bytes;
+            previous.packets = packets;
+            previous.packetsLost = packetsLost;
+            previous.poll = poll;
+            counters.put(ssrc, previous);
+            return null;
+        }
+        // Reuse one object for the result, the caller only reads it right away.
+        scratch.bytes = Math.max(0L, bytes - previous.bytes);
+        scratch.packets = Math.max(0L, packets - previous.packets);
+        scratch.packetsLost = Math.max(0L, packetsLost - previous.packetsLost);
+        previous.bytes = bytes;
+        previous.packets = packets;
+        previous.packetsLost = packetsLost;
+        previous.poll = poll;
+        return scratch;
+    }
+
+    private void forgetStreamsNotSeen() {
+        Iterator<Counters> iterator = counters.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().poll != poll) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static float ratio(long part, long whole) {
+        return whole > 0L ? (float) part / whole : 0.0F;
+    }
+
+    // ===== EXPORT ================================================================================
+
+    /**
+     * Resolves with {samples: [...]}, oldest first, see {@link #sampleToMap(int)}.
+     */
+    void getHistory(final Promise promise) {
+        stats().post(new Runnable() {
+            @Override
+            public void run() {
+                WritableArray samples = new WritableNativeArray();
+                for (int i = 0; i < size; ++i) {
+                    samples.pushMap(sampleToMap((head + i) % HISTORY));
+                }
+                WritableMap history = new WritableNativeMap();
+                history.putArray("samples", samples);
+                promise.resolve(history);
+            }
+        });
+    }
+
+    /*
+     * {timestamp, sendBitrate, receiveBitrate (kbps), sendPacketLoss, receivePacketLoss (0 to 1),
+     * roundTripTime, jitter (ms), sentFrameRate, receivedFrameRate}
+     */
+    private WritableMap sampleToMap(int index) {
+        WritableMap sample = new WritableNativeMap();
+        sample.putDouble("timestamp", times[index]);
+        sample.putDouble("sendBitrate", sendBitrates[index]);
+        sample.putDouble("receiveBitrate", receiveBitrates[index]);
+        sample.putDouble("sendPacketLoss", sendPacketLoss[index]);
+        sample.putDouble("receivePacketLoss", receivePacketLoss[index]);
+        sample.putDouble("roundTripTime", roundTripTimes[index]);
+        sample.putDouble("jitter", jitters[index]);
+        sample.putDouble("sentFrameRate", sentFrameRates[index]);
+        sample.putDouble("receivedFrameRate", receivedFrameRates[index]);
+        return sample;
+    }
+
+    /*
+     * The same metrics averaged over the ring, with the number of samples.
+     */
+    private WritableMap averageToMap() {
+        WritableMap average = new WritableNativeMap();
+        average.putInt("samples", size);
+        average.putDouble("sendBitrate", average(sendBitrates));
+        average.putDouble("receiveBitrate", average(receiveBitrates));
+        average.putDouble("sendPacketLoss", average(sendPacketLoss));
+        average.putDouble("receivePacketLoss", average(receivePacketLoss));
+        average.putDouble("roundTripTime", average(roundTripTimes));
+        average.putDouble("jitter", average(jitters));
+        average.putDouble("sentFrameRate", average(sentFrameRates));
+        average.putDouble("receivedFrameRate", average(receivedFrameRates));
+        return average;
+    }
+
+    private float average(float[] values) {
+        if (size == 0) {
+            return 0.0F;
+        }
+        float sum = 0.0F;
+        for (int i = 0; i < size; ++i) {
+            sum += values[(head + i) % HISTORY];
+        }
+        return sum / size;
+    }
+}
@@ -0,0 +1,55 @@
+package com.twiliorn.library;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.uimanager.events.Event;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+
+/**
+ * An event of the call view, dispatched through the EventDispatcher, which delivers the events
+ * of a frame together.
+ *
+ * A state event carries the whole state it reports, e.g. whether video is enabled. Several of
+ * them with the same name in the same frame coalesce into the latest one, which is all JS needs.
+ * Other events are delivered one by one.
+ */
+class TwilioEvent extends Event<TwilioEvent> {
+
+    private final String      eventName;
+    private final WritableMap data;
+    private final boolean     state;
+
+    static TwilioEvent of(int viewTag, String eventName, WritableMap data) {
+        return new TwilioEvent(viewTag, eventName, data, false);
+    }
+
+    static TwilioEvent state(int viewTag, String eventName, WritableMap data) {
+        return new TwilioEvent(viewTag, eventName, data, true);
+    }
+
+    private TwilioEvent(int viewTag, String eventName, WritableMap data, boolean state) {
+        super(viewTag);
+        this.eventName = eventName;
+        this.data = data;
+        this.state = state;
+    }
+
+    @Override
+    public String getEventName() {
+        return eventName;
+    }
+
+    @Override
+    public boolean canCoalesce() {
+        return state;
+    }
+
+    @Override
+    public short getCoalescingKey() {
+        return 0;
+    }
+
+    @Override
+    public void dispatch(RCTEventEmitter rctEventEmitter) {
+        rctEventEmitter.receiveEvent(getViewTag(), eventName, data);
+    }
+}
@@ -13,7 +13,9 @@ import java.util.List;
 public class TwilioPackage implements ReactPackage {
     @Override
     public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+        return Arrays.<NativeModule>asList(
+            new TwilioVideoModule(reactContext)
+        );
     }
 
     @Override
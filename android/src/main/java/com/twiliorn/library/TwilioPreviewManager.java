@@ -0,0 +1,105 @@
+package com.twiliorn.library;
+
+import android.support.annotation.Nullable;
+
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.common.MapBuilder;
+import com.facebook.react.uimanager.SimpleViewManager;
+import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.annotations.ReactProp;
+import com.facebook.react.uimanager.events.RCTEventEmitter;
+import com.twilio.video.RNRendererStatistics;
+import com.twilio.video.RNSurfaceViewRenderer;
+import com.twilio.video.RNVideoViewGroup;
+import com.twilio.video.VideoScaleType;
+
+import java.util.Map;
+
+/**
+ * Render props shared by the local and remote preview views.
+ */
+public abstract class TwilioPreviewManager<T extends RNVideoViewGroup> extends SimpleViewManager<T> {
+
+    private static final String SCALE_TYPE_FIT      = "fit";
+    private static final String SCALE_TYPE_FILL     = "fill";
+    private static final String SCALE_TYPE_BALANCED = "balanced";
+
+    private static final String PRESENTATION_MODE_VSYNC = "vsync";
+
+    public static final String ON_RENDERER_STATS = "onRendererStats";
+
+    @ReactProp(name = "maxFps", defaultInt = 0)
+    public void setMaxFps(T view, int maxFps) {
+        view.setMaxFps(maxFps);
+    }
+
+    @ReactProp(name = "scaleType")
+    public void setScaleType(T view, @Nullable String scaleType) {
+        if (SCALE_TYPE_FILL.equals(scaleType)) {
+            view.setVideoScaleType(VideoScaleType.ASPECT_FILL);
+        } else if (SCALE_TYPE_BALANCED.equals(scaleType)) {
+            view.setVideoScaleType(VideoScaleType.ASPECT_BALANCED);
+        } else {
+            view.setVideoScaleType(VideoScaleType.ASPECT_FIT);
+        }
+    }
+
+    @ReactProp(name = "mirror")
+    public void setMirror(T view, boolean mirror) {
+        view.setMirror(mirror);
+    }
+
+    @ReactProp(name = "renderResolutionScale", defaultFloat = 1f)
+    public void setRenderResolutionScale(T view, float scale) {
+        view.setRenderResolutionScale(Math.max(0.1f, Math.min(1f, scale)));
+    }
+
+    /**
+     * Interval in milliseconds between onRendererStats events, 0 disables them.
+     */
+    @ReactProp(name = "rendererStatsInterval", defaultInt = 0)
+    public void setRendererStatsInterval(T view, int intervalMs) {
+        view.setRendererStatsInterval(intervalMs);
+    }
+
+    @ReactProp(name = "presentationMode")
+    public void setPresentationMode(T view, @Nullable String presentationMode) {
+        view.setPresentationMode(PRESENTATION_MODE_VSYNC.equals(presentationMode)
+                                         ? RNSurfaceViewRenderer.PresentationMode.VSYNC
+                                         : RNSurfaceViewRenderer.PresentationMode.IMMEDIATE);
+    }
+
+    @Override
+    protected void addEventEmitters(ThemedReactContext reactContext, final T view) {
+        final RCTEventEmitter eventEmitter = reactContext.getJSModule(RCTEventEmitter.class);
+        view.setRendererStatsListener(new RNVideoViewGroup.RendererStatsListener() {
+            @Override
+            public void onRendererStats(RNRendererStatistics.Snapshot snapshot) {
+                WritableMap event = new WritableNativeMap();
+                event.putDouble("fps", snapshot.fps);
+                event.putDouble("dropRatio", snapshot.dropRatio);
+                event.putDouble("renderTimeP50", snapshot.renderTimeP50Ms);
+                event.putDouble("renderTimeP95", snapshot.renderTimeP95Ms);
+                event.putDouble("renderTimeP99", snapshot.renderTimeP99Ms);
+                event.putDouble("timeSinceFirstFrame", snapshot.timeSinceFirstFrameMs);
+                event.putInt("framesReceived", snapshot.framesReceived);
+                event.putInt("framesDropped", snapshot.framesDropped);
+                event.putInt("framesThrottled", snapshot.framesThrottled);
+                event.putInt("framesRendered", snapshot.framesRendered);
+                event.putInt("vsyncsLate", snapshot.vsyncsLate);
+                event.putInt("vsyncsSkipped", snapshot.vsyncsSkipped);
+                event.putInt("framesOfferedWhileDrawing", snapshot.framesOfferedWhileDrawing);
+                eventEmitter.receiveEvent(view.getId(), ON_RENDERER_STATS, event);
+            }
+        });
+    }
+
+    @Override
+    @Nullable
+    public Map getExportedCustomDirectEventTypeConstants() {
+        return MapBuilder.of(
+                ON_RENDERER_STATS, MapBuilder.of("registrationName", ON_RENDERER_STATS)
+        );
+    }
+}
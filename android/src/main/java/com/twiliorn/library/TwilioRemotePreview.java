@@ -1,6 +1,8 @@
 package com.twiliorn.library;
 
 import android.content.Context;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import com.twilio.video.RNVideoViewGroup;
 
@@ -10,8 +12,99 @@ public class TwilioRemotePreview extends RNVideoViewGroup {
 
     private static final String TAG = "TwilioRemotePreview";
 
+    /*
+     * Which remote video this preview shows, see RemoteVideoRegistry. Both null selects the
+     * primary participant.
+     */
+    private String participantSid;
+    private String trackId;
+
+    private String      sessionId;
+    private CallSession session;
+
+    private final ViewTreeObserver.OnScrollChangedListener scrollChangedListener =
+            new ViewTreeObserver.OnScrollChangedListener() {
+                @Override
+                public void onScrollChanged() {
+                    TwilioRemotePreview.this.onLayoutChanged();
+                }
+            };
+
     public TwilioRemotePreview(Context context) {
         super(context);
-        CustomTwilioVideoView.registerPrimaryVideoView(this.getSurfaceViewRenderer());
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(scrollChangedListener);
+        onLayoutChanged();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        getViewTreeObserver().removeOnScrollChangedListener(scrollChangedListener);
+        onLayoutChanged();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        onLayoutChanged();
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        onLayoutChanged();
+    }
+
+    public String getParticipantSid() {
+        return participantSid;
+    }
+
+    public void setParticipantSid(String participantSid) {
+        this.participantSid = participantSid;
+    }
+
+    public String getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(String trackId) {
+        this.trackId = trackId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    /*
+     * Registers with the remote video registry of the session named by the sessionId prop, moving
+     * over from the previous session if it changed. Also picks up participantSid and trackId
+     * changes.
+     */
+    void bindSession() {
+        String sessionId = this.sessionId != null ? this.sessionId : CallSession.DEFAULT_SESSION_ID;
+        if (session == null || !session.getSessionId().equals(sessionId)) {
+            unbindSession();
+            session = CallSession.instance(sessionId, this);
+        }
+        session.getRemoteVideoRegistry().bind(this);
+    }
+
+    void unbindSession() {
+        if (session != null) {
+            session.getRemoteVideoRegistry().unbind(this);
+            session.release(this);
+            session = null;
+        }
+    }
+
+    private void onLayoutChanged() {
+        if (session != null) {
+            session.getRemoteVideoRegistry().onPreviewLayoutChanged(this);
+        }
     }
 }
@@ -1,10 +1,12 @@
 package com.twiliorn.library;
 
-import com.facebook.react.uimanager.SimpleViewManager;
+import android.support.annotation.Nullable;
+
 import com.facebook.react.uimanager.ThemedReactContext;
+import com.facebook.react.uimanager.annotations.ReactProp;
 
 
-public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePreview> {
+public class TwilioRemotePreviewManager extends TwilioPreviewManager<TwilioRemotePreview> {
 
     public static final String REACT_CLASS = "RNTwilioRemotePreview";
 
@@ -17,4 +19,32 @@ public class TwilioRemotePreviewManager extends SimpleViewManager<TwilioRemotePr
     protected TwilioRemotePreview createViewInstance(ThemedReactContext reactContext) {
         return new TwilioRemotePreview(reactContext);
     }
+
+    @ReactProp(name = "participantSid")
+    public void setParticipantSid(TwilioRemotePreview view, @Nullable String participantSid) {
+        view.setParticipantSid(participantSid);
+    }
+
+    @ReactProp(name = "trackId")
+    public void setTrackId(TwilioRemotePreview view, @Nullable String trackId) {
+        view.setTrackId(trackId);
+    }
+
+    @ReactProp(name = "sessionId")
+    public void setSessionId(TwilioRemotePreview view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
+
+    @Override
+    protected void onAfterUpdateTransaction(TwilioRemotePreview view) {
+        super.onAfterUpdateTransaction(view);
+        // Bind once all props of the update are set, so a new preview attaches to one track only.
+        view.bindSession();
+    }
+
+    @Override
+    public void onDropViewInstance(TwilioRemotePreview view) {
+        view.unbindSession();
+        super.onDropViewInstance(view);
+    }
 }
@@ -0,0 +1,424 @@
+package com.twiliorn.library;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.bridge.WritableNativeArray;
+import com.facebook.react.bridge.WritableNativeMap;
+import com.facebook.react.common.MapBuilder;
+import com.twilio.video.AudioTrackStats;
+import com.twilio.video.BaseTrackStats;
+import com.twilio.video.LocalAudioTrackStats;
+import com.twilio.video.LocalTrackStats;
+import com.twilio.video.LocalVideoTrackStats;
+import com.twilio.video.Room;
+import com.twilio.video.RoomState;
+import com.twilio.video.StatsListener;
+import com.twilio.video.StatsReport;
+import com.twilio.video.TrackStats;
+import com.twilio.video.VideoDimensions;
+import com.twilio.video.VideoTrackStats;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Promise based control of a call view, addressed by its sessionId prop instead of its React tag.
+ *
+ * View commands are queued behind the UI operations of the current batch and cannot answer.
+ * These methods go from the native modules thread straight to the UI thread, where the view
+ * lives, and resolve with the time the command waited and ran. Stats are collected and
+ * converted on the module's own thread. A session without a call view rejects with
+ * {@link #E_NO_CALL_VIEW}.
+ *
+ * The room state of a session is read synchronously with getRoomState, getParticipant and
+ * getLocalTrackState, straight from the store's published copy on the JS thread. Changes are
+ * pulled with getRoomStateChanges and emitted as {@link #ROOM_STATE_CHANGED} device events, see
+ * RoomStateStore.
+ */
+public class TwilioVideoModule extends ReactContextBaseJavaModule {
+
+    public static final String NAME = "TwilioVideoModule";
+
+    static final String ROOM_STATE_CHANGED = "TwilioVideo.roomStateChanged";
+
+    private static final String TAG = "TwilioVideoModule";
+
+    static final String E_NO_CALL_VIEW   = "E_NO_CALL_VIEW";
+    static final String E_NO_LOCAL_TRACK = "E_NO_LOCAL_TRACK";
+    static final String E_NO_CAMERA      = "E_NO_CAMERA";
+    static final String E_NOT_CONNECTED  = "E_NOT_CONNECTED";
+    static final String E_NO_SESSION     = "E_NO_SESSION";
+    static final String E_VERSION_GONE   = "E_VERSION_GONE";
+    static final String E_TIMEOUT        = "E_TIMEOUT";
+
+    /*
+     * getStats rejects when the SDK did not answer within this time, e.g. for a room that
+     * disconnected meanwhile.
+     */
+    private static final long STATS_TIMEOUT_MS = 5000L;
+
+    /*
+     * Runs on the UI thread against the session's call view. Returns null on success, after
+     * filling in the result, or the code to reject with.
+     */
+    private interface Command {
+        @Nullable
+        String run(CustomTwilioVideoView view, WritableMap result);
+    }
+
+    private final Handler       uiThreadHandler = new Handler(Looper.getMainLooper());
+    private final HandlerThread statsThread;
+    private final Handler       statsHandler;
+
+    public TwilioVideoModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        statsThread = new HandlerThread(TAG + "-stats");
+        statsThread.start();
+        statsHandler = new Handler(statsThread.getLooper());
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Map<String, Object> getConstants() {
+        return MapBuilder.<String, Object>of("ROOM_STATE_CHANGED", ROOM_STATE_CHANGED);
+    }
+
+    @Override
+    public void onCatalystInstanceDestroy() {
+        statsThread.quitSafely();
+    }
+
+    // ===== COMMANDS ==============================================================================
+
+    @ReactMethod
+    public void connect(@Nullable String sessionId, final String accessToken, Promise promise) {
+        run(sessionId, promise, new Command() {
+            @Override
+            public String run(CustomTwilioVideoView view, WritableMap result) {
+                view.connectToRoomWrapper(accessToken);
+                return null;
+            }
+        });
+    }
+
+    @ReactMethod
+    public void disconnect(@Nullable String sessionId, Promise promise) {
+        run(sessionId, promise, new Command() {
+            @Override
+            public String run(CustomTwilioVideoView view, WritableMap result) {
+                view.disconnect();
+                return null;
+            }
+        });
+    }
+
+    @ReactMethod
+    public void switchCamera(@Nullable String sessionId, Promise promise) {
+        run(sessionId, promise, new Command() {
+            @Override
+            public String run(CustomTwilioVideoView view, WritableMap result) {
+                if (!view.switchCamera()) {
+                    return E_NO_CAMERA;
+                }
+                // The capturer reports the new camera right away, the switch itself is async.
+                result.putBoolean("isBackCamera", view.isBackCamera());
+                return null;
+            }
+        });
+    }
+
+    @ReactMethod
+    public void setVideoEnabled(@Nullable String sessionId, final boolean enabled, Promise promise) {
+        run(sessionId, promise, new Command() {
+            @Override
+            public String run(CustomTwilioVideoView view, WritableMap result) {
+                if (!view.setVideoEnabled(enabled)) {
+                    return E_NO_LOCAL_TRACK;
+                }
+                result.putBoolean("videoEnabled", enabled);
+                return null;
+            }
+        });
+    }
+
+    @ReactMethod
+    public void setAudioEnabled(@Nullable String sessionId, final boolean enabled, Promise promise) {
+        run(sessionId, promise, new Command() {
+            @Override
+            public String run(CustomTwilioVideoView view, WritableMap result) {
+                if (!view.setAudioEnabled(enabled)) {
+                    return E_NO_LOCAL_TRACK;
+                }
+                result.putBoolean("audioEnabled", enabled);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Resolves with {reports: [...]}, one report per peer connection, see {@link #toArray(List)}.
+     * Rejects with {@link #E_NOT_CONNECTED} or {@link #E_TIMEOUT} when the SDK does not answer
+     * within {@link #STATS_TIMEOUT_MS}.
+     */
+    @ReactMethod
+    public void getStats(@Nullable final String sessionId, final Promise promise) {
+        final long receivedTime = SystemClock.elapsedRealtime();
+        uiThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                CustomTwilioVideoView view = callView(sessionId, promise);
+                if (view == null) {
+                    return;
+                }
+                final Room room = view.getConnectedRoom();
+                if (room == null) {
+                    promise.reject(E_NOT_CONNECTED, "Session " + sessionId + " is not connected to a room");
+                    return;
+                }
+                final long startTime = SystemClock.elapsedRealtime();
+                // The SDK calls back on the thread asking, keep the conversion off the UI thread.
+                // The answer and the timeout both run there, the first one settles the promise.
+                final boolean[] settled = new boolean[1];
+                final Runnable timeout = new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!settled[0]) {
+                            settled[0] = true;
+                            promise.reject(room.getState() == RoomState.CONNECTED ? E_TIMEOUT : E_NOT_CONNECTED,
+                                           "No stats from session " + sessionId + " within "
+                                                   + STATS_TIMEOUT_MS + " ms");
+                        }
+                    }
+                };
+                statsHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        statsHandler.postDelayed(timeout, STATS_TIMEOUT_MS);
+                        room.getStats(new StatsListener() {
+                            @Override
+                            public void onStats(List<StatsReport> statsReports) {
+                                if (settled[0]) {
+                                    return;
+                                }
+                                settled[0] = true;
+                                statsHandler.removeCallbacks(timeout);
+                                WritableMap result = new WritableNativeMap();
+                                result.putArray("reports", toArray(statsReports));
+                                result.putDouble("queueMs", startTime - receivedTime);
+                                result.putDouble("durationMs", SystemClock.elapsedRealtime() - startTime);
+                                promise.resolve(result);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Resolves with the samples the call view's StatsCollector keeps, oldest first. Empty unless
+     * the view has a statsInterval.
+     */
+    @ReactMethod
+    public void getStatsHistory(@Nullable final String sessionId, final Promise promise) {
+        uiThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                CustomTwilioVideoView view = callView(sessionId, promise);
+                if (view != null) {
+                    view.getStatsCollector().getHistory(promise);
+                }
+            }
+        });
+    }
+
+    // ===== ROOM STATE ============================================================================
+
+    /**
+     * The session's RoomStateStore snapshot, null without such a session.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    @Nullable
+    public WritableMap getRoomState(@Nullable String sessionId) {
+        CallSession session = CallSession.get(sessionId);
+        return session != null ? session.getRoomStateStore().snapshot() : null;
+    }
+
+    /**
+     * A participant of the session's room, null when it is not in the room.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    @Nullable
+    public WritableMap getParticipant(@Nullable String sessionId, String participantSid) {
+        CallSession session = CallSession.get(sessionId);
+        return session != null ? session.getRoomStateStore().participant(participantSid) : null;
+    }
+
+    /**
+     * The session's local audio and video tracks, null without such a session.
+     */
+    @ReactMethod(isBlockingSynchronousMethod = true)
+    @Nullable
+    public WritableMap getLocalTrackState(@Nullable String sessionId) {
+        CallSession session = CallSession.get(sessionId);
+        return session != null ? session.getRoomStateStore().localTracks() : null;
+    }
+
+    /**
+     * Resolves with the changes after fromVersion, or rejects with {@link #E_VERSION_GONE} when
+     * they are no longer kept and a new snapshot is needed.
+     */
+    @ReactMethod
+    public void getRoomStateChanges(@Nullable final String sessionId, final double fromVersion,
+                                    final Promise promise) {
+        uiThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                CallSession session = CallSession.get(sessionId);
+                if (session == null) {
+                    promise.reject(E_NO_SESSION, "No session " + sessionId);
+                    return;
+                }
+                WritableMap changes = session.getRoomStateStore().changesSince((long) fromVersion);
+                if (changes == null) {
+                    promise.reject(E_VERSION_GONE, "Changes after version " + (long) fromVersion + " are gone");
+                    return;
+                }
+                promise.resolve(changes);
+            }
+        });
+    }
+
+    private void run(@Nullable final String sessionId, final Promise promise, final Command command) {
+        final long receivedTime = SystemClock.elapsedRealtime();
+        uiThreadHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                CustomTwilioVideoView view = callView(sessionId, promise);
+                if (view == null) {
+                    return;
+                }
+                long startTime = SystemClock.elapsedRealtime();
+                WritableMap result = new WritableNativeMap();
+                String error = command.run(view, result);
+                if (error != null) {
+                    promise.reject(error, "Command failed in session " + sessionId + ": " + error);
+                    return;
+                }
+                result.putDouble("queueMs", startTime - receivedTime);
+                result.putDouble("durationMs", SystemClock.elapsedRealtime() - startTime);
+                promise.resolve(result);
+            }
+        });
+    }
+
+    @Nullable
+    private static CustomTwilioVideoView callView(@Nullable String sessionId, Promise promise) {
+        CallSession session = CallSession.get(sessionId);
+        CustomTwilioVideoView view = session != null ? session.getCallView() : null;
+        if (view == null) {
+            promise.reject(E_NO_CALL_VIEW, "No call view in session " + sessionId);
+        }
+        return view;
+    }
+
+    // ===== STATS =================================================================================
+
+    /**
+     * [{peerConnectionId, localAudioTracks, localVideoTracks, remoteAudioTracks, remoteVideoTracks}]
+     */
+    static WritableArray toArray(List<StatsReport> statsReports) {
+        WritableArray reports = new WritableNativeArray();
+        for (StatsReport statsReport : statsReports) {
+            WritableMap report = new WritableNativeMap();
+            report.putString("peerConnectionId", statsReport.getPeerConnectionId());
+
+            WritableArray localAudioTracks = new WritableNativeArray();
+            for (LocalAudioTrackStats stats : statsReport.getLocalAudioTrackStats()) {
+                WritableMap track = localTrackToMap(stats);
+                track.putInt("audioLevel", stats.audioLevel);
+                track.putInt("jitter", stats.jitter);
+                localAudioTracks.pushMap(track);
+            }
+            report.putArray("localAudioTracks", localAudioTracks);
+
+            WritableArray localVideoTracks = new WritableNativeArray();
+            for (LocalVideoTrackStats stats : statsReport.getLocalVideoTrackStats()) {
+                WritableMap track = localTrackToMap(stats);
+                track.putMap("captureDimensions", dimensionsToMap(stats.captureDimensions));
+                track.putMap("dimensions", dimensionsToMap(stats.dimensions));
+                track.putInt("captureFrameRate", stats.captureFrameRate);
+                track.putInt("frameRate", stats.frameRate);
+                localVideoTracks.pushMap(track);
+            }
+            report.putArray("localVideoTracks", localVideoTracks);
+
+            WritableArray remoteAudioTracks = new WritableNativeArray();
+            for (AudioTrackStats stats : statsReport.getAudioTrackStats()) {
+                WritableMap track = remoteTrackToMap(stats);
+                track.putInt("audioLevel", stats.audioLevel);
+                track.putInt("jitter", stats.jitter);
+                remoteAudioTracks.pushMap(track);
+            }
+            report.putArray("remoteAudioTracks", remoteAudioTracks);
+
+            WritableArray remoteVideoTracks = new WritableNativeArray();
+            for (VideoTrackStats stats : statsReport.getVideoTrackStats()) {
+                WritableMap track = remoteTrackToMap(stats);
+                track.putMap("dimensions", dimensionsToMap(stats.dimensions));
+                track.putInt("frameRate", stats.frameRate);
+                remoteVideoTracks.pushMap(track);
+            }
+            report.putArray("remoteVideoTracks", remoteVideoTracks);
+
+            reports.pushMap(report);
+        }
+        return reports;
+    }
+
+    private static WritableMap trackToMap(BaseTrackStats stats) {
+        WritableMap track = new WritableNativeMap();
+        track.putString("trackId", stats.trackId);
+        track.putString("codec", stats.codec);
+        track.putString("ssrc", stats.ssrc);
+        track.putInt("packetsLost", stats.packetsLost);
+        track.putDouble("timestamp", stats.timestamp);
+        return track;
+    }
+
+    private static WritableMap localTrackToMap(LocalTrackStats stats) {
+        WritableMap track = trackToMap(stats);
+        track.putDouble("bytesSent", stats.bytesSent);
+        track.putInt("packetsSent", stats.packetsSent);
+        track.putDouble("roundTripTime", stats.roundTripTime);
+        return track;
+    }
+
+    private static WritableMap remoteTrackToMap(TrackStats stats) {
+        WritableMap track = trackToMap(stats);
+        track.putDouble("bytesReceived", stats.bytesReceived);
+        track.putInt("packetsReceived", stats.packetsReceived);
+        return track;
+    }
+
+    private static WritableMap dimensionsToMap(VideoDimensions dimensions) {
+        WritableMap map = new WritableNativeMap();
+        map.putInt("width", dimensions.width);
+        map.putInt("height", dimensions.height);
+        return map;
+    }
+}
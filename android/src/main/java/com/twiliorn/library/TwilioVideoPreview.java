@@ -18,10 +18,38 @@ public class TwilioVideoPreview extends RNVideoViewGroup {
 
     private static final String TAG = "TwilioVideoPreview";
 
+    private String      sessionId;
+    private CallSession session;
+
     public TwilioVideoPreview(Context context) {
         super(context);
-        CustomTwilioVideoView.registerThumbnailVideoView(this.getSurfaceViewRenderer());
         this.getSurfaceViewRenderer().setMirror(true);
         this.getSurfaceViewRenderer().applyZOrder(true);
     }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    /*
+     * Shows the local video of the session named by the sessionId prop, moving over from the
+     * previous session if it changed.
+     */
+    void bindSession() {
+        String sessionId = this.sessionId != null ? this.sessionId : CallSession.DEFAULT_SESSION_ID;
+        if (session != null && session.getSessionId().equals(sessionId)) {
+            return;
+        }
+        unbindSession();
+        session = CallSession.instance(sessionId, this);
+        session.bindLocalPreview(this);
+    }
+
+    void unbindSession() {
+        if (session != null) {
+            session.unbindLocalPreview(this);
+            session.release(this);
+            session = null;
+        }
+    }
 }
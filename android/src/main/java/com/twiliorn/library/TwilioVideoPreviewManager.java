@@ -4,14 +4,13 @@ import android.support.annotation.Nullable;
 
 import com.facebook.react.bridge.ReadableArray;
 import com.facebook.react.common.MapBuilder;
-import com.facebook.react.uimanager.SimpleViewManager;
 import com.facebook.react.uimanager.ThemedReactContext;
 import com.facebook.react.uimanager.annotations.ReactProp;
 
 import java.util.Map;
 
 
-public class TwilioVideoPreviewManager extends SimpleViewManager<TwilioVideoPreview> {
+public class TwilioVideoPreviewManager extends TwilioPreviewManager<TwilioVideoPreview> {
 
     public static final String REACT_CLASS = "RNTwilioVideoPreview";
 
@@ -24,4 +23,21 @@ public class TwilioVideoPreviewManager extends SimpleViewManager<TwilioVideoPrev
     protected TwilioVideoPreview createViewInstance(ThemedReactContext reactContext) {
         return new TwilioVideoPreview(reactContext);
     }
+
+    @ReactProp(name = "sessionId")
+    public void setSessionId(TwilioVideoPreview view, @Nullable String sessionId) {
+        view.setSessionId(sessionId);
+    }
+
+    @Override
+    protected void onAfterUpdateTransaction(TwilioVideoPreview view) {
+        super.onAfterUpdateTransaction(view);
+        view.bindSession();
+    }
+
+    @Override
+    public void onDropViewInstance(TwilioVideoPreview view) {
+        view.unbindSession();
+        super.onDropViewInstance(view);
+    }
 }
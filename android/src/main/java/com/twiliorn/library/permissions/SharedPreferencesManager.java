@@ -4,6 +4,7 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
+import android.support.annotation.Nullable;
 
 public class SharedPreferencesManager {
 
@@ -11,6 +12,11 @@ public class SharedPreferencesManager {
     private static final String HAS_ASKED_FOR_CAMERA_KEY     = "has_asked_for_camera";
     private static final String HAS_ASKED_FOR_MICROPHONE_KEY = "has_asked_for_microphone";
 
+    // Camera capabilities
+    private static final String CAMERA_FINGERPRINT_KEY       = "camera_fingerprint";
+    private static final String CAMERA_FORMATS_KEY_PREFIX    = "camera_formats_";
+    private static final String CAPTURE_FORMAT_KEY_PREFIX    = "capture_format_";
+
     private final SharedPreferences preferences;
 
     public SharedPreferencesManager(Context context) {
@@ -49,4 +55,53 @@ public class SharedPreferencesManager {
     public boolean isMicrophonePermissionsAsked() {
         return preferences.getBoolean(HAS_ASKED_FOR_MICROPHONE_KEY, false);
     }
+
+    // ===== CAMERA CAPABILITIES ===================================================================
+
+    /*
+     * Capabilities are only valid for the build that reported them, an OS or firmware update can
+     * change the camera HAL. Entries of another fingerprint read as missing.
+     */
+
+    @Nullable
+    public String getCameraFormats(String fingerprint, String camera) {
+        if (!fingerprint.equals(preferences.getString(CAMERA_FINGERPRINT_KEY, null))) {
+            return null;
+        }
+        return preferences.getString(CAMERA_FORMATS_KEY_PREFIX + camera, null);
+    }
+
+    public void setCameraFormats(String fingerprint, String camera, String formats) {
+        setFingerprint(fingerprint).putString(CAMERA_FORMATS_KEY_PREFIX + camera, formats)
+                                   .apply();
+    }
+
+    @Nullable
+    public String getCaptureFormat(String fingerprint, String captureProfile) {
+        if (!fingerprint.equals(preferences.getString(CAMERA_FINGERPRINT_KEY, null))) {
+            return null;
+        }
+        return preferences.getString(CAPTURE_FORMAT_KEY_PREFIX + captureProfile, null);
+    }
+
+    public void setCaptureFormat(String fingerprint, String captureProfile, String format) {
+        setFingerprint(fingerprint).putString(CAPTURE_FORMAT_KEY_PREFIX + captureProfile, format)
+                                   .apply();
+    }
+
+    /*
+     * Drops the entries of another build before writing for this one.
+     */
+    private SharedPreferences.Editor setFingerprint(String fingerprint) {
+        SharedPreferences.Editor editor = preferences.edit();
+        if (!fingerprint.equals(preferences.getString(CAMERA_FINGERPRINT_KEY, null))) {
+            for (String key : preferences.getAll().keySet()) {
+                if (key.startsWith(CAMERA_FORMATS_KEY_PREFIX) || key.startsWith(CAPTURE_FORMAT_KEY_PREFIX)) {
+                    editor.remove(key);
+                }
+            }
+            editor.putString(CAMERA_FINGERPRINT_KEY, fingerprint);
+        }
+        return editor;
+    }
 }
@@ -0,0 +1,229 @@
+package com.twilio.video;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * JVM micro-benchmarks of the renderer pieces that do not need GL: the frame hand-off, the
+ * texture matrix cache and the statistics. The assertions guard the properties the renderer
+ * relies on (no steady state allocation, no frame lost or released twice) and carry the measured
+ * ns/op and bytes/op in their messages.
+ *
+ * Skipped by the regular unit tests. Run with ./gradlew test -Pbenchmark, and
+ * -PbenchmarkIterations=N for more stable numbers.
+ */
+public class RNFramePipelineBenchmarkTest {
+
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200000);
+
+    @Before
+    public void onlyWhenBenchmarking() {
+        assumeTrue(Boolean.getBoolean("benchmark"));
+    }
+
+    /*
+     * Frame sizes the renderer sees, in a 1080x1920 portrait view.
+     */
+    private static final int[][] FRAME_SIZES = {{640, 360}, {1280, 720}, {1920, 1080}};
+    private static final float   LAYOUT_ASPECT = 1080f / 1920f;
+
+    private static final float[] VERTICAL_FLIP = {
+        1, 0, 0, 0,
+        0, -1, 0, 0,
+        0, 0, 1, 0,
+        0, 1, 0, 1
+    };
+
+    private interface Operation {
+        void run(int iteration);
+    }
+
+    private static class Result {
+        String name;
+        double nsPerOp;
+        double bytesPerOp = Double.NaN;
+
+        @Override
+        public String toString() {
+            return String.format("%s: %.1f ns/op, %.3f B/op", name, nsPerOp, bytesPerOp);
+        }
+    }
+
+    @Test
+    public void mailboxOfferPoll() throws Exception {
+        final AtomicInteger recycled = new AtomicInteger();
+        final RNFrameMailbox<Object> mailbox = new RNFrameMailbox<>(new RNFrameMailbox.Recycler<Object>() {
+            @Override
+            public void recycle(Object frame) {
+                recycled.incrementAndGet();
+            }
+        });
+        final Object frame = new Object();
+
+        Result result = measure("mailbox offer+poll", new Operation() {
+            @Override
+            public void run(int iteration) {
+                mailbox.offer(frame);
+                mailbox.poll();
+            }
+        });
+
+        assertEquals(result.toString(), 0, recycled.get());
+        assertNoAllocation(result);
+    }
+
+    @Test
+    public void mailboxProducerConsumer() throws Exception {
+        final int frames = ITERATIONS / 10;
+        final AtomicInteger recycled = new AtomicInteger();
+        final AtomicInteger delivered = new AtomicInteger();
+        final RNFrameMailbox<Object> mailbox = new RNFrameMailbox<>(new RNFrameMailbox.Recycler<Object>() {
+            @Override
+            public void recycle(Object frame) {
+                recycled.incrementAndGet();
+            }
+        });
+        final CountDownLatch producerDone = new CountDownLatch(1);
+        final Object frame = new Object();
+
+        Thread consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (producerDone.getCount() > 0 || mailbox.hasPendingFrame()) {
+                    if (mailbox.poll() != null) {
+                        mailbox.setConsumerBusy(true);
+                        // Stands in for a draw call.
+                        long end = System.nanoTime() + 2000L;
+                        while (System.nanoTime() < end) {
+                            Thread.yield();
+                        }
+                        mailbox.setConsumerBusy(false);
+                        delivered.incrementAndGet();
+                    }
+                }
+            }
+        }, "benchmark-consumer");
+        consumer.start();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; ++i) {
+            mailbox.offer(frame);
+        }
+        long producerNs = System.nanoTime() - start;
+        producerDone.countDown();
+        consumer.join();
+        mailbox.clear();
+
+        String summary = String.format("mailbox producer/consumer: %.1f ns/offer, %d delivered, "
+                                               + "%d dropped (%.1f%%)",
+                                       (double) producerNs / frames, delivered.get(), recycled.get(),
+                                       100.0 * recycled.get() / frames);
+
+        // Every frame is either rendered or recycled, exactly once.
+        assertEquals(summary, frames, delivered.get() + recycled.get());
+    }
+
+    @Test
+    public void textureMatrixPerFrameSize() throws Exception {
+        for (final int[] size : FRAME_SIZES) {
+            final RNTextureMatrix matrix = new RNTextureMatrix();
+            final float frameAspect = (float) size[0] / size[1];
+            final float[] samplingMatrix = VERTICAL_FLIP.clone();
+
+            Result cached = measure("texture matrix " + size[1] + "p cached", new Operation() {
+                @Override
+                public void run(int iteration) {
+                    matrix.update(samplingMatrix, 270, true, frameAspect, LAYOUT_ASPECT);
+                }
+            });
+            assertNoAllocation(cached);
+
+            Result recomputed = measure("texture matrix " + size[1] + "p recomputed", new Operation() {
+                @Override
+                public void run(int iteration) {
+                    matrix.update(samplingMatrix, (iteration & 1) == 0 ? 90 : 270, true, frameAspect,
+                                  LAYOUT_ASPECT);
+                }
+            });
+            assertNoAllocation(recomputed);
+        }
+    }
+
+    @Test
+    public void statisticsRecordFrame() throws Exception {
+        final RNRendererStatistics statistics = new RNRendererStatistics();
+
+        Result result = measure("statistics record frame", new Operation() {
+            @Override
+            public void run(int iteration) {
+                statistics.framesReceived.incrementAndGet();
+                statistics.recordFrameRendered(iteration, (iteration % 20000) * 1000L);
+            }
+        });
+        assertNoAllocation(result);
+
+        final RNRendererStatistics.Snapshot snapshot = new RNRendererStatistics.Snapshot();
+        Result snapshotResult = measure("statistics snapshot", new Operation() {
+            @Override
+            public void run(int iteration) {
+                statistics.snapshot(snapshot);
+            }
+        });
+        assertNoAllocation(snapshotResult);
+    }
+
+    // ===== HARNESS ===============================================================================
+
+    private static Result measure(String name, Operation operation) {
+        // Warm up so the JIT has compiled the operation before measuring.
+        for (int i = 0; i < ITERATIONS; ++i) {
+            operation.run(i);
+        }
+
+        com.sun.management.ThreadMXBean allocationBean = allocationBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = allocationBean != null ? allocationBean.getThreadAllocatedBytes(threadId) : 0L;
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; ++i) {
+            operation.run(i);
+        }
+        long elapsedNs = System.nanoTime() - start;
+
+        Result result = new Result();
+        result.name = name;
+        result.nsPerOp = (double) elapsedNs / ITERATIONS;
+        if (allocationBean != null) {
+            long allocated = allocationBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+            result.bytesPerOp = (double) allocated / ITERATIONS;
+        }
+        return result;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return null;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()) {
+            return null;
+        }
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationBean;
+    }
+
+    private static void assertNoAllocation(Result result) {
+        if (!Double.isNaN(result.bytesPerOp)) {
+            // Leaves room for the measurement's own bookkeeping, a single object per op is 16 B.
+            assertTrue(result.toString(), result.bytesPerOp < 0.1);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.twilio.video;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class RNTextureMatrixTest {
+    private static final float DELTA = 1e-6f;
+
+    /*
+     * Sampling matrix WebRTC attaches to I420 frames: flips the texture vertically.
+     */
+    private static final float[] VERTICAL_FLIP = {
+        1, 0, 0, 0,
+        0, -1, 0, 0,
+        0, 0, 1, 0,
+        0, 1, 0, 1
+    };
+
+    private static final float[] IDENTITY = {
+        1, 0, 0, 0,
+        0, 1, 0, 0,
+        0, 0, 1, 0,
+        0, 0, 0, 1
+    };
+
+    @Test
+    public void identityInputsGiveIdentity() throws Exception {
+        RNTextureMatrix matrix = new RNTextureMatrix();
+
+        assertArrayEquals(IDENTITY, matrix.update(IDENTITY, 0, false, 1.5f, 1.5f), DELTA);
+    }
+
+    @Test
+    public void mirrorFlipsHorizontally() throws Exception {
+        RNTextureMatrix matrix = new RNTextureMatrix();
+
+        float[] result = matrix.update(IDENTITY, 0, true, 1.5f, 1.5f);
+
+        assertEquals(-1f, result[0], DELTA);
+        assertEquals(1f, result[12], DELTA);
+        assertEquals(1f, result[5], DELTA);
+    }
+
+    @Test
+    public void wideLayoutCropsFrameVertically() throws Exception {
+        RNTextureMatrix matrix = new RNTextureMatrix();
+
+        float[] result = matrix.update(IDENTITY, 0, false, 4f / 3f, 16f / 9f);
+
+        assertEquals(1f, result[0], DELTA);
+        assertEquals(0.75f, result[5], DELTA);
+        assertEquals(0.125f, result[13], DELTA);
+    }
+
+    @Test
+    public void rotationIsAppliedAroundTextureCenter() throws Exception {
+        RNTextureMatrix matrix = new RNTextureMatrix();
+
+        float[] result = matrix.update(IDENTITY, 90, false, 1f, 1f);
+
+        // (0, 0) maps to (1, 0) when rotating 90 degrees around (0.5, 0.5).
+        assertEquals(1f, result[12], DELTA);
+        assertEquals(0f, result[13], DELTA);
+        assertEquals(0f, result[0], DELTA);
+        assertEquals(1f, result[1], DELTA);
+    }
+
+    @Test
+    public void recomputesOnlyWhenInputsChange() throws Exception {
+        RNTextureMatrix matrix = new RNTextureMatrix();
+
+        matrix.update(VERTICAL_FLIP, 0, false, 1.5f, 1.5f);
+        matrix.update(VERTICAL_FLIP.clone(), 0, false, 1.5f, 1.5f);
+        assertEquals(1, matrix.getRecomputeCount());
+
+        matrix.update(VERTICAL_FLIP, 90, false, 1.5f, 1.5f);
+        matrix.update(VERTICAL_FLIP, 90, true, 1.5f, 1.5f);
+        matrix.update(VERTICAL_FLIP, 90, true, 1.5f, 2f);
+        assertEquals(4, matrix.getRecomputeCount());
+
+        matrix.invalidate();
+        matrix.update(VERTICAL_FLIP, 90, true, 1.5f, 2f);
+        assertEquals(5, matrix.getRecomputeCount());
+    }
+
+    @Test
+    public void steadyStateDoesNotAllocate() throws Exception {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        assumeTrue(allocationBean.isThreadAllocatedMemorySupported());
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        RNTextureMatrix matrix = new RNTextureMatrix();
+        float[] samplingMatrix = VERTICAL_FLIP.clone();
+        int iterations = 100000;
+        for (int i = 0; i < iterations; ++i) {
+            matrix.update(samplingMatrix, 270, true, 16f / 9f, 9f / 16f);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = allocationBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < iterations; ++i) {
+            matrix.update(samplingMatrix, 270, true, 16f / 9f, 9f / 16f);
+        }
+        long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+        // A single float[16] per frame would be well over a megabyte here; allow for the
+        // bookkeeping of the measurement itself.
+        assertTrue("Allocated " + allocated + " bytes in steady state", allocated < 1024);
+        assertEquals(1, matrix.getRecomputeCount());
+    }
+}
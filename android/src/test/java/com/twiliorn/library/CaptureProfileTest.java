@@ -0,0 +1,152 @@
+package com.twiliorn.library;
+
+import com.twilio.video.VideoDimensions;
+import com.twilio.video.VideoFormat;
+import com.twilio.video.VideoPixelFormat;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CaptureProfileTest {
+
+    private static VideoFormat format(int width, int height, int framerate) {
+        return new VideoFormat(new VideoDimensions(width, height), framerate, VideoPixelFormat.NV21);
+    }
+
+    /*
+     * What a typical front camera reports, landscape as Camera1 does.
+     */
+    private static List<VideoFormat> landscapeFormats() {
+        return Arrays.asList(format(320, 240, 30), format(640, 360, 30), format(640, 480, 30),
+                             format(960, 540, 30), format(1280, 720, 30), format(1280, 960, 30),
+                             format(1920, 1080, 30));
+    }
+
+    private static List<VideoFormat> portraitFormats() {
+        List<VideoFormat> formats = new ArrayList<>();
+        for (VideoFormat format : landscapeFormats()) {
+            formats.add(format(format.dimensions.height, format.dimensions.width, format.framerate));
+        }
+        return formats;
+    }
+
+    private static void assertFormat(int width, int height, int framerate, VideoFormat format) {
+        assertNotNull(format);
+        assertEquals(width + "x" + height + "@" + framerate,
+                     format.dimensions.width + "x" + format.dimensions.height + "@" + format.framerate);
+    }
+
+    // ===== PARSE =================================================================================
+
+    @Test
+    public void parsesBudgets() {
+        assertEquals(new CaptureProfile(720, 30, 0, 0), CaptureProfile.parse("720p30"));
+        assertEquals(new CaptureProfile(480, 15, 4, 3), CaptureProfile.parse("480p15 4:3"));
+        assertEquals(new CaptureProfile(360, 24, 16, 9), CaptureProfile.parse(" 360p24  16:9 "));
+        assertSame(CaptureProfile.BATTERY_SAVER, CaptureProfile.parse("batterySaver"));
+    }
+
+    @Test
+    public void defaultAndUnreadableBudgetsUseTheSdkConstraints() {
+        assertNull(CaptureProfile.parse(null));
+        assertNull(CaptureProfile.parse("default"));
+        assertNull(CaptureProfile.parse("720"));
+        assertNull(CaptureProfile.parse("720p30 16/9"));
+        assertNull(CaptureProfile.parse("hd"));
+    }
+
+    @Test
+    public void printsAsParsed() {
+        assertEquals("720p30", CaptureProfile.parse("720p30").toString());
+        assertEquals("480p15 4:3", CaptureProfile.parse("480p15 4:3").toString());
+        assertEquals("480p15", CaptureProfile.BATTERY_SAVER.toString());
+    }
+
+    @Test
+    public void cappedKeepsTheBudgetsAspectRatio() {
+        CaptureProfile budget = CaptureProfile.parse("720p24 4:3");
+        assertEquals(new CaptureProfile(540, 24, 4, 3), CaptureProfile.capped(budget, new CaptureProfile(540, 30, 0, 0)));
+
+        CaptureProfile profile = new CaptureProfile(360, 15, 0, 0);
+        assertSame(profile, CaptureProfile.capped(null, profile));
+    }
+
+    // ===== FITS ==================================================================================
+
+    @Test
+    public void heightIsTheShortSideInBothOrientations() {
+        CaptureProfile profile = CaptureProfile.parse("720p30");
+        assertTrue(profile.fits(format(1280, 720, 30)));
+        assertTrue(profile.fits(format(720, 1280, 30)));
+        assertFalse(profile.fits(format(1920, 1080, 30)));
+        assertFalse(profile.fits(format(1080, 1920, 30)));
+    }
+
+    @Test
+    public void aspectRatioMatchesEitherWayRound() {
+        CaptureProfile fourByThree = CaptureProfile.parse("720p30 4:3");
+        assertTrue(fourByThree.fits(format(640, 480, 30)));
+        assertTrue(fourByThree.fits(format(480, 640, 30)));
+        assertFalse(fourByThree.fits(format(1280, 720, 30)));
+
+        CaptureProfile sixteenByNine = CaptureProfile.parse("720p30 16:9");
+        assertTrue(sixteenByNine.fits(format(1280, 720, 30)));
+        assertTrue(sixteenByNine.fits(format(720, 1280, 30)));
+        assertFalse(sixteenByNine.fits(format(640, 480, 30)));
+
+        assertTrue(CaptureProfile.parse("720p30 3:4").fits(format(640, 480, 30)));
+    }
+
+    @Test
+    public void aspectRatioToleratesRoundedSizes() {
+        CaptureProfile profile = CaptureProfile.parse("720p30 16:9");
+        assertTrue(profile.fits(format(1272, 720, 30)));
+        assertFalse(profile.fits(format(1152, 720, 30)));
+    }
+
+    // ===== SELECT FORMAT =========================================================================
+
+    @Test
+    public void selectsTheLargestFormatWithinTheBudget() {
+        CaptureProfile profile = CaptureProfile.parse("720p30");
+        assertFormat(1280, 720, 30, profile.selectFormat(landscapeFormats()));
+        assertFormat(720, 1280, 30, profile.selectFormat(portraitFormats()));
+
+        assertFormat(960, 540, 30, CaptureProfile.parse("540p24").selectFormat(landscapeFormats()));
+    }
+
+    @Test
+    public void selectsWithinTheAspectRatio() {
+        assertFormat(1280, 720, 30, CaptureProfile.parse("720p30 16:9").selectFormat(landscapeFormats()));
+        assertFormat(720, 1280, 30, CaptureProfile.parse("720p30 16:9").selectFormat(portraitFormats()));
+        assertFormat(640, 480, 30, CaptureProfile.parse("480p15 4:3").selectFormat(landscapeFormats()));
+        assertFormat(480, 640, 30, CaptureProfile.parse("480p15 4:3").selectFormat(portraitFormats()));
+        assertFormat(640, 360, 30, CaptureProfile.parse("480p15 16:9").selectFormat(landscapeFormats()));
+    }
+
+    @Test
+    public void prefersTheFrameRateClosestToTheBudget() {
+        List<VideoFormat> formats = Arrays.asList(format(1280, 720, 15), format(1280, 720, 30), format(640, 480, 30));
+        assertFormat(1280, 720, 30, CaptureProfile.parse("720p24").selectFormat(formats));
+    }
+
+    @Test
+    public void fallsBackToTheSmallestFormatWhenNoneFits() {
+        List<VideoFormat> formats = Arrays.asList(format(1920, 1080, 30), format(1280, 720, 30), format(1280, 960, 30));
+        assertFormat(1280, 720, 30, CaptureProfile.parse("480p15").selectFormat(formats));
+
+        // No 4:3 format at all.
+        List<VideoFormat> wide = Arrays.asList(format(1280, 720, 30), format(640, 360, 30), format(1920, 1080, 30));
+        assertFormat(640, 360, 30, CaptureProfile.parse("720p30 4:3").selectFormat(wide));
+    }
+
+    @Test
+    public void noFormatWithoutSupportedFormats() {
+        assertNull(CaptureProfile.parse("720p30").selectFormat(new ArrayList<VideoFormat>()));
+    }
+}
@@ -0,0 +1,135 @@
+package com.twiliorn.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RenderPolicyTest {
+
+    private RenderPolicy policy;
+
+    @Before
+    public void setUp() {
+        policy = new RenderPolicy();
+        // Joined in this order, "d" most recently.
+        policy.markActive("a");
+        policy.markActive("b");
+        policy.markActive("c");
+        policy.markActive("d");
+    }
+
+    /*
+     * What RemoteVideoRegistry renders: the best ranked SIDs, up to the cutoff.
+     */
+    private List<String> select(String... participantSids) {
+        List<String> candidates = new ArrayList<>(Arrays.asList(participantSids));
+        Collections.sort(candidates, policy);
+        return candidates.subList(0, policy.selectedCount(candidates.size()));
+    }
+
+    @Test
+    public void recencyRanksMostRecentlyActiveFirst() {
+        assertEquals(Arrays.asList("d", "c", "b", "a"), select("a", "b", "c", "d"));
+
+        policy.markActive("a");
+        assertEquals(Arrays.asList("a", "d", "c", "b"), select("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void recencyIgnoresPinsAndTheDominantSpeaker() {
+        policy.setPinnedParticipantSids(Arrays.asList("a"));
+        policy.setDominantSpeakerSid("b");
+
+        // Speaking still counts as activity.
+        assertEquals(Arrays.asList("b", "d", "c", "a"), select("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void unknownAndForgottenParticipantsRankAfterActiveOnes() {
+        policy.forget("d");
+        assertEquals(Arrays.asList("c", "b", "a", "d"), select("a", "b", "c", "d"));
+        assertEquals(Arrays.asList("a", "e"), select("e", "a"));
+    }
+
+    @Test
+    public void nullRanksLast() {
+        assertEquals(Arrays.asList("a", null), select(null, "a"));
+        assertEquals(0, policy.compare(null, null));
+    }
+
+    @Test
+    public void pinnedRanksPinnedParticipantsFirstInListOrder() {
+        assertTrue(policy.setPriority(RenderPolicy.PRIORITY_PINNED));
+        policy.setPinnedParticipantSids(Arrays.asList("b", "a"));
+
+        assertEquals(Arrays.asList("b", "a", "d", "c"), select("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void pinnedIgnoresTheDominantSpeakerBeyondActivity() {
+        policy.setPriority(RenderPolicy.PRIORITY_PINNED);
+        policy.setPinnedParticipantSids(Arrays.asList("a"));
+        policy.setDominantSpeakerSid("b");
+
+        assertEquals(Arrays.asList("a", "b", "d", "c"), select("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void dominantSpeakerRanksTheSpeakerThenPinnedParticipants() {
+        assertTrue(policy.setPriority(RenderPolicy.PRIORITY_DOMINANT_SPEAKER));
+        policy.setPinnedParticipantSids(Arrays.asList("b", "a"));
+        policy.setDominantSpeakerSid("a");
+
+        assertEquals(Arrays.asList("a", "b", "d", "c"), select("a", "b", "c", "d"));
+
+        policy.setDominantSpeakerSid("c");
+        assertEquals(Arrays.asList("c", "b", "a", "d"), select("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void unknownPriorityFallsBackToRecency() {
+        policy.setPriority(RenderPolicy.PRIORITY_PINNED);
+        assertTrue(policy.setPriority("loudest"));
+        assertFalse(policy.setPriority(null));
+        policy.setPinnedParticipantSids(Arrays.asList("a"));
+
+        assertEquals(Arrays.asList("d", "c", "b", "a"), select("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void cutoffKeepsTheBestRanked() {
+        assertTrue(policy.setMaxRenderedTracks(2));
+        assertTrue(policy.isLimited());
+        assertEquals(Arrays.asList("d", "c"), select("a", "b", "c", "d"));
+
+        policy.setPriority(RenderPolicy.PRIORITY_PINNED);
+        policy.setPinnedParticipantSids(Arrays.asList("a"));
+        assertEquals(Arrays.asList("a", "d"), select("a", "b", "c", "d"));
+    }
+
+    @Test
+    public void cutoffAboveTheCandidatesSelectsAll() {
+        policy.setMaxRenderedTracks(8);
+        assertEquals(Arrays.asList("d", "c", "b", "a"), select("a", "b", "c", "d"));
+        assertEquals(Collections.<String>emptyList(), select());
+    }
+
+    @Test
+    public void noCutoffWithoutALimit() {
+        assertFalse(policy.isLimited());
+        assertEquals(4, select("a", "b", "c", "d").size());
+
+        policy.setMaxRenderedTracks(1);
+        assertFalse(policy.setMaxRenderedTracks(1));
+        assertTrue(policy.setMaxRenderedTracks(-3));
+        assertEquals(0, policy.getMaxRenderedTracks());
+        assertFalse(policy.isLimited());
+        assertEquals(4, select("a", "b", "c", "d").size());
+    }
+}
@@ -0,0 +1,262 @@
+package com.twiliorn.library;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RoomReconnectorTest {
+
+    /*
+     * Stands in for Room: each connect answers after a short signaling delay with the next
+     * scripted outcome, NO_ERROR for a successful connect.
+     */
+    private class FakeRoom implements RoomReconnector.Connector {
+        final LinkedList<Integer> outcomes = new LinkedList<>();
+        int connects;
+
+        @Override
+        public void connect() {
+            ++connects;
+            final int outcome = outcomes.isEmpty() ? RoomReconnector.NO_ERROR : outcomes.removeFirst();
+            scheduler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    if (outcome == RoomReconnector.NO_ERROR) {
+                        reconnector.onConnected();
+                    } else {
+                        reconnector.onConnectFailure(outcome);
+                    }
+                }
+            }, SIGNALING_DELAY_MS);
+        }
+    }
+
+    private static class FakeScheduler implements RoomReconnector.Scheduler {
+        private static class Task {
+            final Runnable runnable;
+            final long     time;
+
+            Task(Runnable runnable, long time) {
+                this.runnable = runnable;
+                this.time = time;
+            }
+        }
+
+        final List<Task> tasks = new ArrayList<>();
+        long time;
+
+        @Override
+        public long now() {
+            return time;
+        }
+
+        @Override
+        public void postDelayed(Runnable runnable, long delayMs) {
+            tasks.add(new Task(runnable, time + delayMs));
+        }
+
+        @Override
+        public void removeCallbacks(Runnable runnable) {
+            Iterator<Task> iterator = tasks.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().runnable == runnable) {
+                    iterator.remove();
+                }
+            }
+        }
+
+        void advance(long ms) {
+            long end = time + ms;
+            while (true) {
+                Task next = null;
+                for (Task task : tasks) {
+                    if (task.time <= end && (next == null || task.time < next.time)) {
+                        next = task;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                tasks.remove(next);
+                time = next.time;
+                next.runnable.run();
+            }
+            time = end;
+        }
+    }
+
+    private static class RecordingListener implements RoomReconnector.Listener {
+        final List<Long> delays = new ArrayList<>();
+        int  reconnectingAttempt;
+        int  lastErrorCode;
+        int  reconnectedAttempts = -1;
+        long reconnectedDurationMs;
+        int  failedAttempts = -1;
+
+        @Override
+        public void onReconnecting(int attempt, long delayMs, int errorCode) {
+            reconnectingAttempt = attempt;
+            lastErrorCode = errorCode;
+            delays.add(delayMs);
+        }
+
+        @Override
+        public void onReconnected(int attempts, long durationMs) {
+            reconnectedAttempts = attempts;
+            reconnectedDurationMs = durationMs;
+        }
+
+        @Override
+        public void onReconnectFailed(int attempts, long durationMs, int errorCode) {
+            failedAttempts = attempts;
+            lastErrorCode = errorCode;
+        }
+    }
+
+    private static final long SIGNALING_DELAY_MS = 200L;
+    private static final long LONG_ENOUGH_MS     = 10L * 60L * 1000L;
+
+    private FakeScheduler     scheduler;
+    private FakeRoom          room;
+    private RecordingListener listener;
+    private RoomReconnector   reconnector;
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        room = new FakeRoom();
+        listener = new RecordingListener();
+        reconnector = new RoomReconnector(room, scheduler, listener, new Random(42));
+        assertFalse(reconnector.onConnected());
+    }
+
+    @Test
+    public void reconnectsAfterNetworkDrop() {
+        assertTrue(reconnector.onDisconnected(RoomReconnector.SIGNALING_CONNECTION_DISCONNECTED));
+        assertTrue(reconnector.isReconnecting());
+        assertEquals(1, listener.reconnectingAttempt);
+        assertEquals(RoomReconnector.SIGNALING_CONNECTION_DISCONNECTED, listener.lastErrorCode);
+
+        scheduler.advance(LONG_ENOUGH_MS);
+
+        assertEquals(1, room.connects);
+        assertEquals(1, listener.reconnectedAttempts);
+        assertEquals(listener.delays.get(0) + SIGNALING_DELAY_MS, listener.reconnectedDurationMs);
+        assertEquals(RoomReconnector.STATE_CONNECTED, reconnector.getState());
+    }
+
+    @Test
+    public void retriesUntilConnected() {
+        room.outcomes.add(RoomReconnector.SIGNALING_CONNECTION_ERROR);
+        room.outcomes.add(RoomReconnector.SIGNALING_CONNECTION_TIMEOUT);
+
+        reconnector.onDisconnected(RoomReconnector.MEDIA_CONNECTION_ERROR);
+        scheduler.advance(LONG_ENOUGH_MS);
+
+        assertEquals(3, room.connects);
+        assertEquals(3, listener.reconnectedAttempts);
+        assertEquals(3, listener.delays.size());
+    }
+
+    @Test
+    public void backoffDoublesWithJitterUpToTheMaximum() {
+        reconnector.setBackoff(1000L, 8000L, 20);
+        for (int attempt = 1; attempt <= 20; ++attempt) {
+            long delayMs = reconnector.delayForAttempt(attempt);
+            long expectedMs = Math.min(1000L << Math.min(attempt - 1, 16), 8000L);
+            assertTrue("attempt " + attempt + ": " + delayMs, delayMs >= expectedMs / 2);
+            assertTrue("attempt " + attempt + ": " + delayMs, delayMs <= expectedMs);
+        }
+    }
+
+    @Test
+    public void jitterSpreadsDelays() {
+        long first = reconnector.delayForAttempt(3);
+        boolean spread = false;
+        for (int i = 0; i < 10 && !spread; ++i) {
+            spread = reconnector.delayForAttempt(3) != first;
+        }
+        assertTrue(spread);
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() {
+        reconnector.setBackoff(100L, 1000L, 3);
+        for (int i = 0; i < 5; ++i) {
+            room.outcomes.add(RoomReconnector.SIGNALING_CONNECTION_ERROR);
+        }
+
+        reconnector.onDisconnected(RoomReconnector.SIGNALING_CONNECTION_ERROR);
+        scheduler.advance(LONG_ENOUGH_MS);
+
+        assertEquals(3, room.connects);
+        assertEquals(3, listener.failedAttempts);
+        assertEquals(-1, listener.reconnectedAttempts);
+        assertEquals(RoomReconnector.STATE_IDLE, reconnector.getState());
+    }
+
+    @Test
+    public void stopsOnUnrecoverableConnectFailure() {
+        room.outcomes.add(RoomReconnector.ACCESS_TOKEN_EXPIRED);
+
+        reconnector.onDisconnected(RoomReconnector.SIGNALING_CONNECTION_ERROR);
+        scheduler.advance(LONG_ENOUGH_MS);
+
+        assertEquals(1, room.connects);
+        assertEquals(1, listener.failedAttempts);
+        assertEquals(RoomReconnector.ACCESS_TOKEN_EXPIRED, listener.lastErrorCode);
+    }
+
+    @Test
+    public void doesNotReconnectUnrecoverableDisconnects() {
+        int[] codes = {RoomReconnector.NO_ERROR, RoomReconnector.ACCESS_TOKEN_INVALID,
+                RoomReconnector.ROOM_COMPLETED, RoomReconnector.PARTICIPANT_DUPLICATE_IDENTITY};
+        for (int code : codes) {
+            reconnector.onConnected();
+            assertFalse(reconnector.onDisconnected(code));
+        }
+        scheduler.advance(LONG_ENOUGH_MS);
+
+        assertEquals(0, room.connects);
+        assertTrue(listener.delays.isEmpty());
+    }
+
+    @Test
+    public void stopCancelsPendingAttempt() {
+        reconnector.onDisconnected(RoomReconnector.SIGNALING_CONNECTION_ERROR);
+        reconnector.stop();
+        scheduler.advance(LONG_ENOUGH_MS);
+
+        assertEquals(0, room.connects);
+        assertFalse(reconnector.isReconnecting());
+    }
+
+    @Test
+    public void keepsWatchingTheRoomAfterAnotherConnectFailed() {
+        // E.g. a room switch failing while the call goes on in the connected room.
+        assertFalse(reconnector.onConnectFailure(RoomReconnector.SIGNALING_CONNECTION_ERROR));
+        assertEquals(RoomReconnector.STATE_CONNECTED, reconnector.getState());
+
+        assertTrue(reconnector.onDisconnected(RoomReconnector.SIGNALING_CONNECTION_DISCONNECTED));
+        scheduler.advance(LONG_ENOUGH_MS);
+
+        assertEquals(1, room.connects);
+        assertEquals(1, listener.reconnectedAttempts);
+    }
+
+    @Test
+    public void ignoresFailuresOfOtherConnects() {
+        reconnector.stop();
+
+        assertFalse(reconnector.onConnectFailure(RoomReconnector.SIGNALING_CONNECTION_ERROR));
+        assertFalse(reconnector.onDisconnected(RoomReconnector.SIGNALING_CONNECTION_ERROR));
+        assertEquals(0, room.connects);
+    }
+}
@@ -1,9 +1,11 @@
 import CustomTwilioVideoView from './CustomTwilioVideoView';
 import TwilioRemotePreview from './TwilioRemotePreview';
 import TwilioVideoPreview from './TwilioVideoPreview';
+import TwilioVideoModule from './TwilioVideoModule';
 
 module.exports = {
   TwilioVideo: CustomTwilioVideoView,
   TwilioRemotePreview,
   TwilioVideoPreview,
+  TwilioVideoModule,
 };